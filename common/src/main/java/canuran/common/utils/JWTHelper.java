@@ -1,6 +1,7 @@
 package canuran.common.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 
@@ -9,16 +10,18 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * JWT生成与解析类。
+ * JWT生成与解析类，线程安全，每个密钥只创建一个解析器，应当作为单例重复使用。
  *
  * @author canuran
  */
 public class JWTHelper {
 
     private final String secret;
+    private final JwtParser parser;
 
     public JWTHelper(String secret) {
         this.secret = secret;
+        this.parser = Jwts.parser().setSigningKey(secret);
     }
 
     /**
@@ -83,10 +86,7 @@ public class JWTHelper {
             if (token.startsWith("Bearer ")) {
                 token = token.substring(7);
             }
-            return Jwts.parser()
-                    .setSigningKey(secret)
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             throw new RuntimeException("解析Token失败。", e);
         }
@@ -1,10 +1,12 @@
 package canuran.common.utils;
 
 import java.io.Serializable;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Stack;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 树工具类。
@@ -17,7 +19,8 @@ public class TreeUtils {
 
     /**
      * 树节点集合转换为树形结构，使用函数式接口操作树节点。
-     * 有父节点的挂在父节点下，未找到父结节的置于顶级。
+     * 有父节点的挂在父节点下，未找到父结节的置于顶级，保持节点集合中的顺序。
+     * 先以Key建立哈希索引再查找父节点，时间复杂度为O(n)。
      * <p>
      * 例如把 List<Node> nodes 转成树：
      * TreeUtils.toTree(nodes, ArrayList::new,
@@ -37,32 +40,122 @@ public class TreeUtils {
                 || childrenGetter == null || childrenSetter == null) {
             throw new IllegalArgumentException("Operate methods missing");
         }
+        // 以Key索引节点，Key重复时使用第一个节点
+        Map<Serializable, E> index = new HashMap<>(Math.max(16, (int) (nodes.size() / 0.75F) + 1));
+        for (E node : nodes) {
+            Serializable key = keyGetter.apply(node);
+            if (key != null) {
+                index.putIfAbsent(key, node);
+            }
+        }
         C tree = treeCreator.get();
-        boolean single;
         for (E node : nodes) {
-            // 没有父节点作为根节点
-            if (parentKeyGetter.apply(node) == null) {
-                tree.add(node);
-            } else {
-                single = true;
-                for (E parent : nodes) {
-                    // 有父节点ID，添加到它的父节点
-                    if (parentKeyGetter.apply(node).equals(keyGetter.apply(parent))) {
-                        if (childrenGetter.apply(parent) == null) {
-                            childrenSetter.accept(parent, treeCreator.get());
-                        }
-                        childrenGetter.apply(parent).add(node);
-                        single = false;
-                        break;
-                    }
+            Serializable parentKey = parentKeyGetter.apply(node);
+            E parent = parentKey == null ? null : index.get(parentKey);
+            addToTree(tree, node, parent, treeCreator, childrenGetter, childrenSetter);
+        }
+        return tree;
+    }
+
+    /**
+     * 与 toTree 相同，Key为Long时使用基本类型的索引，避免装箱和哈希表节点的开销。
+     * <p>
+     * 例如：TreeUtils.toLongKeyTree(nodes, ArrayList::new,
+     * Node::getNodeId, Node::getParentId,
+     * Node::getChildren, Node::setChildren);
+     */
+    public static <E, C extends Collection<E>> C toLongKeyTree(
+            C nodes, Supplier<C> treeCreator,
+            Function<E, Long> keyGetter,
+            Function<E, Long> parentKeyGetter,
+            Function<E, C> childrenGetter,
+            BiConsumer<E, C> childrenSetter) {
+        if (nodes == null) {
+            return null;
+        }
+        if (keyGetter == null || treeCreator == null || parentKeyGetter == null
+                || childrenGetter == null || childrenSetter == null) {
+            throw new IllegalArgumentException("Operate methods missing");
+        }
+        LongIndex<E> index = new LongIndex<>(nodes.size());
+        for (E node : nodes) {
+            Long key = keyGetter.apply(node);
+            if (key != null) {
+                index.putIfAbsent(key, node);
+            }
+        }
+        C tree = treeCreator.get();
+        for (E node : nodes) {
+            Long parentKey = parentKeyGetter.apply(node);
+            E parent = parentKey == null ? null : index.get(parentKey);
+            addToTree(tree, node, parent, treeCreator, childrenGetter, childrenSetter);
+        }
+        return tree;
+    }
+
+    /**
+     * 有父节点的添加到父节点，没有父节点或未找到父节点的作为根节点。
+     */
+    private static <E, C extends Collection<E>> void addToTree(
+            C tree, E node, E parent, Supplier<C> treeCreator,
+            Function<E, C> childrenGetter, BiConsumer<E, C> childrenSetter) {
+        if (parent == null) {
+            tree.add(node);
+            return;
+        }
+        C children = childrenGetter.apply(parent);
+        if (children == null) {
+            children = treeCreator.get();
+            childrenSetter.accept(parent, children);
+        }
+        children.add(node);
+    }
+
+    /**
+     * 以long为Key的开放寻址索引，只支持添加和查询。
+     */
+    private static class LongIndex<E> {
+
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        LongIndex(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void putIfAbsent(long key, E value) {
+            int i = hash(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return;
                 }
-                // 没有找到父节点的也做为根节点
-                if (single) {
-                    tree.add(node);
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        E get(long key) {
+            int i = hash(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return (E) values[i];
                 }
+                i = (i + 1) & mask;
             }
+            return null;
         }
-        return tree;
+
+        private int hash(long key) {
+            // 混合高低位，自增ID也能均匀分布
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
     }
 
     /**
@@ -74,7 +167,7 @@ public class TreeUtils {
             return;
         }
         // 使用迭代器和栈记录所有遍历状态
-        Stack<Iterator<E>> stack = new Stack<>();
+        Deque<Iterator<E>> stack = new ArrayDeque<>();
         stack.push(tree.iterator());
         while (!stack.isEmpty()) {
             Iterator<E> iterator = stack.pop();
@@ -100,7 +193,7 @@ public class TreeUtils {
         }
         C nodes = collectionCreator.get();
         // 使用迭代器和栈记录所有遍历状态
-        Stack<Iterator<E>> stack = new Stack<>();
+        Deque<Iterator<E>> stack = new ArrayDeque<>();
         stack.push(tree.iterator());
         while (!stack.isEmpty()) {
             Iterator<E> iterator = stack.pop();
@@ -128,7 +221,7 @@ public class TreeUtils {
         }
         C nodes = collectionCreator.get();
         // 使用迭代器和栈记录所有遍历状态
-        Stack<Iterator<E>> stack = new Stack<>();
+        Deque<Iterator<E>> stack = new ArrayDeque<>();
         stack.push(tree.iterator());
         while (!stack.isEmpty()) {
             Iterator<E> iterator = stack.pop();
@@ -156,7 +249,7 @@ public class TreeUtils {
             return null;
         }
         // 使用迭代器和栈记录所有遍历状态
-        Stack<Iterator<E>> stack = new Stack<>();
+        Deque<Iterator<E>> stack = new ArrayDeque<>();
         stack.push(tree.iterator());
         while (!stack.isEmpty()) {
             Iterator<E> iterator = stack.pop();
@@ -175,4 +268,194 @@ public class TreeUtils {
         return null;
     }
 
+    /**
+     * 以先根遍历的顺序创建树的所有节点的流，并行时在子树边界拆分任务，叶子节点不再拆分。
+     * <p>
+     * 并行流在公共 ForkJoinPool 中执行，在其他 ForkJoinPool 中调用时使用该线程池。
+     */
+    public static <E, C extends Collection<E>> Stream<E> treeStream(
+            C tree, Function<E, C> childrenGetter, boolean parallel) {
+        if (tree == null || tree.isEmpty()) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new TreeSpliterator<>(childrenGetter, new ArrayDeque<>(tree)), parallel);
+    }
+
+    /**
+     * 并行遍历所有节点，不保证顺序，消费者需要线程安全。
+     */
+    public static <E, C extends Collection<E>> void parallelTraverseTree(
+            C tree, Function<E, C> childrenGetter, Consumer<E> consumer) {
+        treeStream(tree, childrenGetter, true).forEach(consumer);
+    }
+
+    /**
+     * 并行把树的所有节点展开到集合，与 flat 的顺序相同。
+     */
+    public static <E, C extends Collection<E>> C parallelFlat(
+            C tree, Supplier<C> collectionCreator, Function<E, C> childrenGetter) {
+        if (tree == null) {
+            return null;
+        }
+        return treeStream(tree, childrenGetter, true)
+                .collect(Collectors.toCollection(collectionCreator));
+    }
+
+    /**
+     * 并行从树的所有节点中查找原子节点，与 filterTree 的顺序相同。
+     */
+    public static <E, C extends Collection<E>> C parallelFilterTree(
+            C tree, Supplier<C> collectionCreator,
+            Function<E, C> childrenGetter, Predicate<E> predicate) {
+        if (tree == null) {
+            return null;
+        }
+        return treeStream(tree, childrenGetter, true)
+                .filter(predicate)
+                .collect(Collectors.toCollection(collectionCreator));
+    }
+
+    /**
+     * 并行从树的所有节点中查找原子节点，不保证顺序，合并结果时无需保持顺序。
+     */
+    public static <E, C extends Collection<E>> C parallelFilterTreeUnordered(
+            C tree, Supplier<C> collectionCreator,
+            Function<E, C> childrenGetter, Predicate<E> predicate) {
+        if (tree == null) {
+            return null;
+        }
+        return treeStream(tree, childrenGetter, true)
+                .unordered()
+                .filter(predicate)
+                .collect(Collectors.toCollection(collectionCreator));
+    }
+
+    /**
+     * 并行查找第一个原子节点，与 findFirst 的结果相同，找到后取消后面子树的任务。
+     */
+    public static <E, C extends Collection<E>> E parallelFindFirst(
+            C tree, Function<E, C> childrenGetter, Predicate<E> predicate) {
+        return treeStream(tree, childrenGetter, true)
+                .filter(predicate)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 并行查找任意一个原子节点，找到后立即结束，比 parallelFindFirst 更快。
+     */
+    public static <E, C extends Collection<E>> E parallelFindAny(
+            C tree, Function<E, C> childrenGetter, Predicate<E> predicate) {
+        return treeStream(tree, childrenGetter, true)
+                .filter(predicate)
+                .findAny()
+                .orElse(null);
+    }
+
+    /**
+     * 先根遍历的拆分迭代器，待遍历的节点及其子树按顺序排列，拆分时前一半作为新的迭代器。
+     * <p>
+     * 子树大小未知，按线程池的并行度限制拆分深度，避免拆分出过多的小任务。
+     */
+    private static class TreeSpliterator<E, C extends Collection<E>> implements Spliterator<E> {
+
+        private final Function<E, C> childrenGetter;
+        private final Deque<E> pending;
+        // 只遍历该节点本身，子节点在后续的待遍历节点中
+        private E head;
+        private int splits;
+
+        TreeSpliterator(Function<E, C> childrenGetter, Deque<E> pending) {
+            this(childrenGetter, null, pending,
+                    32 - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism() * 8));
+        }
+
+        private TreeSpliterator(Function<E, C> childrenGetter, E head, Deque<E> pending, int splits) {
+            this.childrenGetter = childrenGetter;
+            this.head = head;
+            this.pending = pending;
+            this.splits = splits;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            E node = head;
+            if (node != null) {
+                head = null;
+            } else {
+                node = pending.pollFirst();
+                if (node == null) {
+                    return false;
+                }
+                pushChildren(node);
+            }
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (splits <= 0 || head != null || pending.isEmpty()) {
+                return null;
+            }
+            E prefixHead = null;
+            if (pending.size() == 1) {
+                // 只有一棵子树时，根节点和前一半子节点作为新的迭代器
+                E node = pending.peekFirst();
+                if (!hasChildren(node)) {
+                    return null;
+                }
+                pending.pollFirst();
+                pushChildren(node);
+                prefixHead = node;
+            } else if (!hasSubtree()) {
+                // 都是叶子节点时顺序遍历更快
+                return null;
+            }
+            int half = pending.size() / 2;
+            Deque<E> prefix = new ArrayDeque<>(half);
+            for (int i = 0; i < half; i++) {
+                prefix.addLast(pending.pollFirst());
+            }
+            splits--;
+            return new TreeSpliterator<>(childrenGetter, prefixHead, prefix, splits);
+        }
+
+        private boolean hasSubtree() {
+            for (E node : pending) {
+                if (hasChildren(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasChildren(E node) {
+            C children = childrenGetter.apply(node);
+            return children != null && !children.isEmpty();
+        }
+
+        private void pushChildren(E node) {
+            C children = childrenGetter.apply(node);
+            if (children != null && !children.isEmpty()) {
+                Object[] array = children.toArray();
+                for (int i = array.length - 1; i >= 0; i--) {
+                    pending.addFirst((E) array[i]);
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            // 子树大小未知
+            return head == null && pending.isEmpty() ? 0L : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+    }
+
 }
@@ -0,0 +1,103 @@
+package canuran.common.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 树工具测试。
+ *
+ * @author canuran
+ */
+public class TreeUtilsTest {
+
+    @Test
+    public void toTree() {
+        List<Node> tree = TreeUtils.toTree(nodes(), ArrayList::new,
+                Node::getId, Node::getParentId, Node::getChildren, Node::setChildren);
+        Assert.assertEquals("[3[4, 5], 1[2[6]], 7]", tree.toString());
+    }
+
+    @Test
+    public void toLongKeyTree() {
+        List<Node> tree = TreeUtils.toLongKeyTree(nodes(), ArrayList::new,
+                Node::getId, Node::getParentId, Node::getChildren, Node::setChildren);
+        Assert.assertEquals("[3[4, 5], 1[2[6]], 7]", tree.toString());
+    }
+
+    @Test
+    public void parallel() {
+        List<Node> nodes = new ArrayList<>();
+        Random random = new Random(1);
+        for (long i = 0; i < 100000; i++) {
+            nodes.add(new Node(i, i == 0 ? null : (long) random.nextInt((int) i)));
+        }
+        List<Node> tree = TreeUtils.toLongKeyTree(nodes, ArrayList::new,
+                Node::getId, Node::getParentId, Node::getChildren, Node::setChildren);
+        List<Node> flat = TreeUtils.flat(tree, ArrayList::new, Node::getChildren);
+        Assert.assertEquals(flat, TreeUtils.parallelFlat(tree, ArrayList::new, Node::getChildren));
+        Predicate<Node> predicate = node -> node.getId() % 7 == 3;
+        List<Node> filtered = TreeUtils.filterTree(tree, ArrayList::new, Node::getChildren, predicate);
+        Assert.assertEquals(filtered, TreeUtils.parallelFilterTree(
+                tree, ArrayList::new, Node::getChildren, predicate));
+        Assert.assertEquals(new HashSet<>(filtered), TreeUtils.parallelFilterTreeUnordered(
+                tree, HashSet::new, Node::getChildren, predicate));
+        Assert.assertSame(TreeUtils.findFirst(tree, Node::getChildren, predicate),
+                TreeUtils.parallelFindFirst(tree, Node::getChildren, predicate));
+        Assert.assertTrue(predicate.test(TreeUtils.parallelFindAny(tree, Node::getChildren, predicate)));
+        LongAdder count = new LongAdder();
+        TreeUtils.parallelTraverseTree(tree, Node::getChildren, node -> count.increment());
+        Assert.assertEquals(nodes.size(), count.intValue());
+    }
+
+    /**
+     * 子节点在父节点之前，7的父节点不存在。
+     */
+    private static List<Node> nodes() {
+        return new ArrayList<>(Arrays.asList(new Node(4L, 3L), new Node(3L, null),
+                new Node(6L, 2L), new Node(1L, null), new Node(2L, 1L),
+                new Node(5L, 3L), new Node(7L, 100L)));
+    }
+
+    private static class Node {
+
+        private final Long id;
+        private final Long parentId;
+        private List<Node> children;
+
+        Node(Long id, Long parentId) {
+            this.id = id;
+            this.parentId = parentId;
+        }
+
+        Long getId() {
+            return id;
+        }
+
+        Long getParentId() {
+            return parentId;
+        }
+
+        List<Node> getChildren() {
+            return children;
+        }
+
+        void setChildren(List<Node> children) {
+            this.children = children;
+        }
+
+        @Override
+        public String toString() {
+            return children == null ? String.valueOf(id) : id + children.toString();
+        }
+
+    }
+
+}
@@ -3,8 +3,12 @@ package canuran.faster.application.config;
 import com.querydsl.sql.MySQLTemplates;
 import com.querydsl.sql.SQLTemplates;
 import com.querydsl.sql.spring.SpringExceptionTranslator;
+import com.zaxxer.hikari.HikariDataSource;
+import canuran.faster.security.PermissionIndexCache;
 import canuran.query.BaseQueryFactory;
 import canuran.query.support.FriendlySQLLogger;
+import canuran.query.support.QueryCache;
+import canuran.query.support.QueryExecutor;
 import canuran.query.support.SafeSQLListener;
 import canuran.query.support.SpringConnectionProvider;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,15 +33,42 @@ public class FasterDaoConfig {
         return new DataSourceTransactionManager(dataSource);
     }
 
+    /**
+     * 异步查询执行器，线程数与连接池大小一致，容器关闭时自动调用 shutdown()。
+     */
     @Bean
     @Autowired
-    public BaseQueryFactory queryFactory(DataSource dataSource) {
+    public QueryExecutor queryExecutor(DataSource dataSource) {
+        int poolSize = dataSource instanceof HikariDataSource
+                ? ((HikariDataSource) dataSource).getMaximumPoolSize() : 10;
+        return new QueryExecutor(poolSize);
+    }
+
+    /**
+     * 用户资源许可索引缓存，写入资源许可表时失效。
+     */
+    @Bean
+    public PermissionIndexCache permissionIndexCache() {
+        return new PermissionIndexCache();
+    }
+
+    @Bean
+    @Autowired
+    public BaseQueryFactory queryFactory(DataSource dataSource,
+                                         QueryExecutor queryExecutor,
+                                         PermissionIndexCache permissionIndexCache) {
         SQLTemplates templates = MySQLTemplates.builder().quote().build();
         com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(templates);
         configuration.setExceptionTranslator(new SpringExceptionTranslator());
         configuration.addListener(new FriendlySQLLogger());
         configuration.addListener(new SafeSQLListener());
-        return new BaseQueryFactory(configuration, new SpringConnectionProvider(dataSource, configuration));
+        configuration.addListener(permissionIndexCache);
+        return new BaseQueryFactory(configuration, new SpringConnectionProvider(dataSource, configuration))
+                .lambdaBeans(true)
+                .entityMappers(true)
+                .pageParallel(true)
+                .queryCache(new QueryCache())
+                .queryExecutor(queryExecutor);
     }
 
 }
\ No newline at end of file
@@ -132,7 +132,7 @@ public class DictionaryServiceImpl implements DictionaryService {
 
         List<DictionaryNode> dictionaries = dictionaryDao
                 .findRootSubDictionaries(rootValues);
-        return TreeUtils.toTree(dictionaries,
+        return TreeUtils.toLongKeyTree(dictionaries,
                 ArrayList::new,
                 DictionaryNode::getDictionaryId,
                 DictionaryNode::getParentId,
@@ -11,4 +11,9 @@ public interface AuthorityDao {
 
     List<AuthorityNode> getUserAuthorities(Long userId);
 
+    /**
+     * 角色或权限变化时使角色权限快照失效，在事务中时完成后再失效一次。
+     */
+    void evictRoleAuthorities();
+
 }
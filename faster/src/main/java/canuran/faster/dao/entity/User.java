@@ -19,6 +19,8 @@ public class User implements Serializable {
 
     private String password;
 
+    private Integer tokenVersion;
+
     private Long userId;
 
     private String username;
@@ -63,6 +65,14 @@ public class User implements Serializable {
         this.password = password;
     }
 
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public Long getUserId() {
         return userId;
     }
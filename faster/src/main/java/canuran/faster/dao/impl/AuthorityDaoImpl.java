@@ -1,10 +1,13 @@
 package canuran.faster.dao.impl;
 
 import canuran.faster.dao.AuthorityDao;
+import canuran.faster.security.AuthorityRegistry;
 import canuran.faster.security.vo.AuthorityNode;
 import canuran.query.BaseQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -21,19 +24,65 @@ public class AuthorityDaoImpl implements AuthorityDao {
     @Autowired
     private BaseQueryFactory queryFactory;
 
+    private final Object snapshotLock = new Object();
+    private volatile RoleAuthoritySnapshot snapshot;
+    private long snapshotVersion;
+
     @Override
     public List<AuthorityNode> getUserAuthorities(Long userId) {
-        // 用户->角色->权限
-        return queryFactory.selectDistinct(authority)
-                .from(authority)
-                .join(roleAuthority)
-                .on(authority.authorityId.eq(roleAuthority.authorityId))
-                .join(userRole)
-                .on(roleAuthority.roleId.eq(userRole.roleId))
+        // 用户->角色，角色->权限从快照中合并
+        List<Long> roleIds = queryFactory.select(userRole.roleId)
+                .from(userRole)
                 .where(userRole.userId.eq(userId))
-                .orderBy(authority.authorityId.asc())
-                .fitBean(AuthorityNode.class)
                 .fetch();
+        return getSnapshot().getAuthorities(roleIds);
+    }
+
+    @Override
+    public void evictRoleAuthorities() {
+        Runnable evict = () -> {
+            synchronized (snapshotLock) {
+                snapshotVersion++;
+                snapshot = null;
+            }
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 完成后再失效一次，避免提交或回滚前加载的快照
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取快照，不存在时加载全部角色权限并重建权限编码注册表，加载期间有失效时不保存。
+     */
+    private RoleAuthoritySnapshot getSnapshot() {
+        RoleAuthoritySnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadVersion;
+        synchronized (snapshotLock) {
+            loadVersion = snapshotVersion;
+        }
+        RoleAuthoritySnapshot loaded = new RoleAuthoritySnapshot(
+                queryFactory.selectFrom(authority)
+                        .fitBean(AuthorityNode.class)
+                        .fetch(),
+                queryFactory.selectFrom(roleAuthority).fetch());
+        synchronized (snapshotLock) {
+            if (loadVersion == snapshotVersion) {
+                snapshot = loaded;
+                // 权限编码的序号随快照重建，已删除或已改名的编码不再保留
+                AuthorityRegistry.reload(loaded.getCodes());
+            }
+        }
+        return loaded;
     }
 
 }
@@ -36,12 +36,12 @@ public class DictionaryDaoImpl implements DictionaryDao {
                 .where(dictionary.dictionaryId.eq(dictionary.rootId))
                 // 搜索条件，支持子字典名称搜索
                 .whereIfHasText(findDictionaryParam.getName(), qAllDictionary.name::contains)
-                .whereIfHasText(findDictionaryParam.getValue(), qAllDictionary.value::contains);
-        // 先查询根字典的总数
-        long total = rootQuery.fetchCount();
+                .whereIfHasText(findDictionaryParam.getValue(), qAllDictionary.value::contains)
+                .pagingIfNotnull(findDictionaryParam);
+        // 先按分页参数的统计策略查询根字典的总数
+        Page<Dictionary> countPage = rootQuery.pageFetchRows(false).fetchPage();
 
         // 关联查根字典下的所有子字典项
-        rootQuery.limit(findDictionaryParam.getLimit()).offset(findDictionaryParam.getOffset());
         List<Dictionary> dictionaries = queryFactory.selectDistinct(qAllDictionary)
                 .from(rootQuery.as(dictionary))
                 .leftJoin(qAllDictionary)
@@ -49,7 +49,7 @@ public class DictionaryDaoImpl implements DictionaryDao {
                 .orderBy(dictionary.dictionaryId.asc())
                 .fetch();
 
-        return new Page<>(total, dictionaries);
+        return countPage.withRows(dictionaries);
     }
 
     @Override
@@ -0,0 +1,81 @@
+package canuran.faster.dao.impl;
+
+import canuran.faster.dao.entity.RoleAuthority;
+import canuran.faster.security.vo.AuthorityNode;
+
+import java.util.*;
+
+/**
+ * 角色权限快照，创建后不再修改，数据变化时整体重建替换。
+ * <p>
+ * 权限按ID排序保存，角色保存权限的下标，合并多个角色的权限时按下标去重并保持权限ID顺序。
+ *
+ * @author canuran
+ */
+class RoleAuthoritySnapshot {
+
+    private final AuthorityNode[] authorities;
+    private final Map<Long, int[]> roleAuthorities;
+
+    RoleAuthoritySnapshot(List<AuthorityNode> authorityList, List<RoleAuthority> roleAuthorityList) {
+        this.authorities = authorityList.toArray(new AuthorityNode[0]);
+        Arrays.sort(this.authorities, Comparator.comparing(AuthorityNode::getAuthorityId));
+        Map<Long, Integer> indexes = new HashMap<>(authorities.length * 2);
+        for (int i = 0; i < authorities.length; i++) {
+            indexes.put(authorities[i].getAuthorityId(), i);
+        }
+        Map<Long, List<Integer>> grouped = new HashMap<>();
+        for (RoleAuthority roleAuthority : roleAuthorityList) {
+            Integer index = indexes.get(roleAuthority.getAuthorityId());
+            if (index != null && roleAuthority.getRoleId() != null) {
+                grouped.computeIfAbsent(roleAuthority.getRoleId(), roleId -> new ArrayList<>()).add(index);
+            }
+        }
+        this.roleAuthorities = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((roleId, list) -> roleAuthorities.put(roleId,
+                list.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * 合并角色的权限，按权限ID排序，每次返回新的对象，可以任意修改。
+     */
+    List<AuthorityNode> getAuthorities(Collection<Long> roleIds) {
+        BitSet owned = new BitSet(authorities.length);
+        for (Long roleId : roleIds) {
+            int[] indexes = roleAuthorities.get(roleId);
+            if (indexes != null) {
+                for (int index : indexes) {
+                    owned.set(index);
+                }
+            }
+        }
+        List<AuthorityNode> result = new ArrayList<>(owned.cardinality());
+        for (int i = owned.nextSetBit(0); i >= 0; i = owned.nextSetBit(i + 1)) {
+            result.add(copy(authorities[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 全部权限编码，按权限ID排序。
+     */
+    List<String> getCodes() {
+        List<String> codes = new ArrayList<>(authorities.length);
+        for (AuthorityNode authority : authorities) {
+            codes.add(authority.getCode());
+        }
+        return codes;
+    }
+
+    private static AuthorityNode copy(AuthorityNode source) {
+        AuthorityNode node = new AuthorityNode();
+        node.setAuthorityId(source.getAuthorityId());
+        node.setParentId(source.getParentId());
+        node.setName(source.getName());
+        node.setCode(source.getCode());
+        node.setType(source.getType());
+        node.setContent(source.getContent());
+        return node;
+    }
+
+}
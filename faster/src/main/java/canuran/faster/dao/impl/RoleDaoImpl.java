@@ -35,13 +35,13 @@ public class RoleDaoImpl implements RoleDao {
 
     @Override
     public Page<RoleWithAuthority> findRoleWithAuthority(FindRoleParam findRoleParam) {
-        // 查询角色总数
+        // 按分页参数的统计策略查询角色总数
         BaseQuery<Role> roleQuery = queryFactory.selectFrom(role)
-                .whereIfHasText(findRoleParam.getSearch(), role.name::contains);
-        long total = roleQuery.fetchCount();
+                .whereIfHasText(findRoleParam.getSearch(), role.name::contains)
+                .pagingIfNotnull(findRoleParam);
+        Page<Role> countPage = roleQuery.pageFetchRows(false).fetchPage();
 
         // 分页查询并附带权限
-        roleQuery.limit(findRoleParam.getLimit()).offset(findRoleParam.getOffset());
         List<Tuple> rows = queryFactory.select(qRoleWithAuthority, authority)
                 .from(roleQuery.as(role))
                 .leftJoin(roleAuthority).on(role.roleId.eq(roleAuthority.roleId))
@@ -49,7 +49,7 @@ public class RoleDaoImpl implements RoleDao {
                 .orderBy(role.roleId.asc())
                 .fetch();
 
-        return new Page<>(total, QueryUtils.rowsToTree(
+        return countPage.withRows(QueryUtils.rowsToTree(
                 rows, qRoleWithAuthority, authority,
                 RoleWithAuthority::getRoleId,
                 Authority::getAuthorityId,
@@ -35,14 +35,14 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public Page<UserWithRole> findUserWithRole(FindUserParam findUserParam) {
-        // 查询用户总数
+        // 按分页参数的统计策略查询用户总数
         BaseQuery<User> userQuery = queryFactory.selectFrom(user)
                 .whereIfHasText(findUserParam.getUsername(), user.username::contains)
-                .whereIfHasText(findUserParam.getNickname(), user.nickname::contains);
-        long total = userQuery.fetchCount();
+                .whereIfHasText(findUserParam.getNickname(), user.nickname::contains)
+                .pagingIfNotnull(findUserParam);
+        Page<User> countPage = userQuery.pageFetchRows(false).fetchPage();
 
         // 查询分页并附带角色
-        userQuery.limit(findUserParam.getLimit()).offset(findUserParam.getOffset());
         List<Tuple> rows = queryFactory.select(qUserWithRole, role)
                 .from(userQuery.as(user))
                 .leftJoin(userRole).on(user.userId.eq(userRole.userId))
@@ -51,7 +51,7 @@ public class UserDaoImpl implements UserDao {
                 .fetch();
 
 
-        return new Page<>(total, QueryUtils.rowsToTree(
+        return countPage.withRows(QueryUtils.rowsToTree(
                 rows, qUserWithRole, role,
                 User::getUserId,
                 Role::getRoleId,
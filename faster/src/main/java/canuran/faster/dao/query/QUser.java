@@ -35,6 +35,8 @@ public class QUser extends com.querydsl.sql.RelationalPathBase<User> {
 
     public final StringPath password = createString("password");
 
+    public final NumberPath<Integer> tokenVersion = createNumber("tokenVersion", Integer.class);
+
     public final NumberPath<Long> userId = createNumber("userId", Long.class);
 
     public final StringPath username = createString("username");
@@ -72,6 +74,7 @@ public class QUser extends com.querydsl.sql.RelationalPathBase<User> {
         addMetadata(gender, ColumnMetadata.named("gender").withIndex(5).ofType(Types.VARCHAR).withSize(16).notNull());
         addMetadata(nickname, ColumnMetadata.named("nickname").withIndex(4).ofType(Types.VARCHAR).withSize(64).notNull());
         addMetadata(password, ColumnMetadata.named("password").withIndex(3).ofType(Types.VARCHAR).withSize(32).notNull());
+        addMetadata(tokenVersion, ColumnMetadata.named("token_version").withIndex(8).ofType(Types.INTEGER).withSize(10).notNull());
         addMetadata(userId, ColumnMetadata.named("user_id").withIndex(1).ofType(Types.BIGINT).withSize(19).notNull());
         addMetadata(username, ColumnMetadata.named("username").withIndex(2).ofType(Types.VARCHAR).withSize(64).notNull());
     }
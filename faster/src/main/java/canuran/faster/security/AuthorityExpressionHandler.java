@@ -0,0 +1,35 @@
+package canuran.faster.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * 方法权限注解的表达式处理器，使用权限位图判断 hasAuthority，全局方法安全配置自动使用唯一的处理器。
+ *
+ * @author canuran
+ */
+@Component
+public class AuthorityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    /**
+     * 自定义处理器时需要自己设置 hasPermission 的求值策略，延迟加载以免提前创建业务服务导致事务代理失效。
+     */
+    @Override
+    @Autowired
+    public void setPermissionEvaluator(@Lazy PermissionEvaluator permissionEvaluator) {
+        super.setPermissionEvaluator(permissionEvaluator);
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(
+            Authentication authentication, MethodInvocation invocation) {
+        return new AuthorityExpressionRoot(super.createSecurityExpressionRoot(authentication, invocation));
+    }
+
+}
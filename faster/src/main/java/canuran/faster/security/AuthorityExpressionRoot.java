@@ -0,0 +1,135 @@
+package canuran.faster.security;
+
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * 注解表达式的根对象，登录用户为 SecurityUser 时 hasAuthority 和 hasAnyAuthority 检查权限位图，
+ * 其他表达式及其他类型的用户使用默认的实现。
+ * <p>
+ * 默认实现的 hasAuthority 为 final 方法，所以通过委托实现，而不是继承 SecurityExpressionRoot。
+ *
+ * @author canuran
+ */
+public class AuthorityExpressionRoot implements MethodSecurityExpressionOperations {
+
+    private final MethodSecurityExpressionOperations delegate;
+    private final SecurityUser securityUser;
+
+    public AuthorityExpressionRoot(MethodSecurityExpressionOperations delegate) {
+        this.delegate = delegate;
+        Authentication authentication = delegate.getAuthentication();
+        Object principal = authentication == null ? null : authentication.getPrincipal();
+        this.securityUser = principal instanceof SecurityUser ? (SecurityUser) principal : null;
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        if (securityUser == null) {
+            return delegate.hasAuthority(authority);
+        }
+        return securityUser.hasAuthority(authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        if (securityUser == null) {
+            return delegate.hasAnyAuthority(authorities);
+        }
+        for (String authority : authorities) {
+            if (securityUser.hasAuthority(authority)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 表达式中的 principal 属性。
+     */
+    public Object getPrincipal() {
+        Authentication authentication = delegate.getAuthentication();
+        return authentication == null ? null : authentication.getPrincipal();
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return delegate.getAuthentication();
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        return delegate.hasRole(role);
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        return delegate.hasAnyRole(roles);
+    }
+
+    @Override
+    public boolean permitAll() {
+        return delegate.permitAll();
+    }
+
+    @Override
+    public boolean denyAll() {
+        return delegate.denyAll();
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return delegate.isAnonymous();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return delegate.isAuthenticated();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return delegate.isRememberMe();
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return delegate.isFullyAuthenticated();
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return delegate.hasPermission(target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return delegate.hasPermission(targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        delegate.setFilterObject(filterObject);
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return delegate.getFilterObject();
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        delegate.setReturnObject(returnObject);
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return delegate.getReturnObject();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegate.getThis();
+    }
+
+}
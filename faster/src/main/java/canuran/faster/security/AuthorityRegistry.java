@@ -0,0 +1,118 @@
+package canuran.faster.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 权限编码注册表，为每个权限编码分配连续的序号，用户的权限保存为位图，判断权限时只需检查对应的位。
+ * <p>
+ * 序号由数据决定而不是注册顺序：先是按名称排序的 AuthorityCodes 常量，再是按权限ID排序的数据库中的其他权限，
+ * 数据相同的节点序号相同。加载角色权限快照时整体重建，已删除或已改名的编码随之移除。
+ * <p>
+ * 注册表创建后不再修改，位图只能用生成它的注册表检查，注册表重建后需要重新计算。
+ *
+ * @author canuran
+ */
+public final class AuthorityRegistry {
+
+    private static final List<String> CONSTANTS;
+    private static volatile AuthorityRegistry current;
+
+    static {
+        List<String> constants = new ArrayList<>();
+        for (Field field : AuthorityCodes.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    constants.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        Collections.sort(constants);
+        CONSTANTS = Collections.unmodifiableList(constants);
+        current = new AuthorityRegistry(Collections.emptyList());
+    }
+
+    private final Map<String, Integer> indexes;
+    private final String[] codes;
+
+    private AuthorityRegistry(List<String> authorityCodes) {
+        Map<String, Integer> map = new HashMap<>((CONSTANTS.size() + authorityCodes.size()) * 2);
+        List<String> list = new ArrayList<>(CONSTANTS.size() + authorityCodes.size());
+        for (String code : CONSTANTS) {
+            map.put(code, list.size());
+            list.add(code);
+        }
+        for (String code : authorityCodes) {
+            if (code != null && !map.containsKey(code)) {
+                map.put(code, list.size());
+                list.add(code);
+            }
+        }
+        this.indexes = map;
+        this.codes = list.toArray(new String[0]);
+    }
+
+    /**
+     * 当前的注册表。
+     */
+    public static AuthorityRegistry current() {
+        return current;
+    }
+
+    /**
+     * 按数据库中全部的权限编码（按权限ID排序）重建注册表。
+     */
+    public static void reload(List<String> authorityCodes) {
+        current = new AuthorityRegistry(authorityCodes);
+    }
+
+    /**
+     * 获取权限编码的序号，未注册时返回-1。
+     */
+    public int indexOf(String code) {
+        Integer index = code == null ? null : indexes.get(code);
+        return index == null ? -1 : index;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * 获取序号对应的权限编码，未注册时返回空。
+     */
+    public String codeOf(int index) {
+        return index >= 0 && index < codes.length ? codes[index] : null;
+    }
+
+    /**
+     * 转换权限集合为位图，忽略未注册的权限编码。
+     */
+    public long[] toBits(Collection<? extends GrantedAuthority> authorities) {
+        long[] bits = new long[(codes.length + 63) >>> 6];
+        if (authorities == null) {
+            return bits;
+        }
+        for (GrantedAuthority authority : authorities) {
+            int index = authority == null ? -1 : indexOf(authority.getAuthority());
+            if (index >= 0) {
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 位图中是否有该权限编码。
+     */
+    public boolean hasBit(long[] bits, String code) {
+        int index = indexOf(code);
+        return index >= 0 && (index >>> 6) < bits.length && (bits[index >>> 6] & (1L << index)) != 0L;
+    }
+
+}
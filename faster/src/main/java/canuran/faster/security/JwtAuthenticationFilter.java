@@ -0,0 +1,90 @@
+package canuran.faster.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Token认证过滤器，从 Authorization 请求头或 Cookie 中读取Token，有效时设置登录用户，无效时交给后续认证。
+ * <p>
+ * 登录用户每次按用户名从 PrincipalCache 加载，用户、角色、权限的变化和登出在当前节点立即生效，
+ * 其他节点在登录用户缓存过期后生效。
+ * <p>
+ * 不能注册为 Bean，否则会被同时添加到 Servlet 过滤器链中。
+ *
+ * @author canuran
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN_COOKIE = "token";
+    private static final String BEARER = "Bearer ";
+
+    private final JwtTokenManager tokenManager;
+    private final UserDetailsService userDetailsService;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+
+    public JwtAuthenticationFilter(JwtTokenManager tokenManager, UserDetailsService userDetailsService) {
+        this.tokenManager = tokenManager;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Claims claims = tokenManager.getClaims(getToken(request));
+            SecurityUser securityUser = claims == null ? null : toSecurityUser(claims);
+            if (securityUser != null) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        securityUser, null, securityUser.getAuthorities());
+                authentication.setDetails(detailsSource.buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 按用户名加载登录用户，用户已删除、已重建或已登出时返回空。
+     */
+    private SecurityUser toSecurityUser(Claims claims) {
+        SecurityUser securityUser;
+        try {
+            securityUser = (SecurityUser) userDetailsService.loadUserByUsername(claims.getSubject());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        return tokenManager.isIssuedTo(claims, securityUser) ? securityUser : null;
+    }
+
+    /**
+     * 优先从 Authorization 请求头读取Token，没有时从 Cookie 读取。
+     */
+    static String getToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER)) {
+            return header.substring(BEARER.length());
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (TOKEN_COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,146 @@
+package canuran.faster.security;
+
+import canuran.common.utils.JWTHelper;
+import io.jsonwebtoken.Claims;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 无状态登录Token管理，Token中只保存用户名、用户ID和Token版本，权限由每次请求按用户名加载的登录用户提供。
+ * <p>
+ * 解析后的 Claims 按签名缓存，超出容量时淘汰最久未使用的，命中时比较完整的Token，避免替换负载后复用签名。
+ * 用户登出时Token版本加一，之前签发的Token与登录用户的版本不同，不再有效。
+ *
+ * @author canuran
+ */
+public class JwtTokenManager {
+
+    private static final String USER_ID = "uid";
+    private static final String TOKEN_VERSION = "ver";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final JWTHelper jwtHelper;
+    private final int expireSeconds;
+    private final Map<String, Entry> cache;
+
+    public JwtTokenManager(String secret, int expireSeconds) {
+        this(secret, expireSeconds, 10000);
+    }
+
+    public JwtTokenManager(String secret, int expireSeconds, int maxSize) {
+        this.jwtHelper = new JWTHelper(checkSecret(secret));
+        this.expireSeconds = expireSeconds;
+        this.cache = new LinkedHashMap<String, Entry>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public int getExpireSeconds() {
+        return expireSeconds;
+    }
+
+    /**
+     * 为登录用户签发Token，记录用户当前的Token版本。
+     */
+    public String createToken(SecurityUser securityUser) {
+        Map<String, Object> claims = new HashMap<>(8);
+        claims.put(Claims.SUBJECT, securityUser.getUsername());
+        claims.put(Claims.EXPIRATION, JWTHelper.secondsExp(expireSeconds));
+        claims.put(USER_ID, String.valueOf(securityUser.getUserId()));
+        claims.put(TOKEN_VERSION, versionOf(securityUser));
+        return jwtHelper.generateToken(claims);
+    }
+
+    /**
+     * 获取Token的负载信息，无效或已过期时返回空，调用方不能修改。
+     */
+    public Claims getClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(signature);
+            if (entry != null && entry.token.equals(token)) {
+                if (entry.expireAt > now) {
+                    return entry.claims;
+                }
+                cache.remove(signature);
+                return null;
+            }
+        }
+        Claims claims;
+        try {
+            claims = jwtHelper.getClaimsValidate(token);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        synchronized (cache) {
+            cache.put(signature, new Entry(token, claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
+    /**
+     * Token是否属于该登录用户，用户ID和Token版本都相同时有效，用户已重建或已登出时无效。
+     */
+    public boolean isIssuedTo(Claims claims, SecurityUser securityUser) {
+        return securityUser != null
+                && String.valueOf(securityUser.getUserId()).equals(claims.get(USER_ID, String.class))
+                && Integer.valueOf(versionOf(securityUser)).equals(claims.get(TOKEN_VERSION, Integer.class));
+    }
+
+    /**
+     * 获取Token中的用户ID。
+     */
+    public Long getUserId(Claims claims) {
+        String userId = claims.get(USER_ID, String.class);
+        return userId == null ? null : Long.valueOf(userId);
+    }
+
+    private static int versionOf(SecurityUser securityUser) {
+        Integer version = securityUser.getTokenVersion();
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * 密钥必须是Base64编码，解码后不少于HS256要求的32字节。
+     */
+    private static String checkSecret(String secret) {
+        if (secret == null || secret.trim().isEmpty()) {
+            throw new IllegalStateException("jwt.secret missing, set it with the JWT_SECRET environment variable");
+        }
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("jwt.secret must be Base64 encoded", e);
+        }
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("jwt.secret must be at least " + MIN_SECRET_BYTES + " bytes after decoding");
+        }
+        return secret.trim();
+    }
+
+    private static class Entry {
+
+        private final String token;
+        private final Claims claims;
+        private final long expireAt;
+
+        Entry(String token, Claims claims, long expireAt) {
+            this.token = token;
+            this.claims = claims;
+            this.expireAt = expireAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package canuran.faster.security;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+import com.querydsl.sql.dml.SQLInsertBatch;
+import com.querydsl.sql.dml.SQLMergeBatch;
+import com.querydsl.sql.dml.SQLUpdateBatch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static canuran.faster.dao.query.QPermission.permission;
+
+/**
+ * 用户资源许可索引缓存，首次检查时加载，超出容量时淘汰最久未使用的。
+ * <p>
+ * 需要注册到 Configuration 中，本应用写入资源许可表时全部失效，事务提交前的并发检查及其他应用的写入只能等待过期。
+ *
+ * @author canuran
+ */
+public class PermissionIndexCache extends SQLBaseListener {
+
+    private final long ttlMillis;
+    private final Map<Long, Entry> cache;
+    private long version;
+
+    public PermissionIndexCache() {
+        this(600000L, 10000);
+    }
+
+    public PermissionIndexCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<Long, Entry>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取用户的索引，不存在或已过期时重新加载，加载时不加锁，加载期间有写入时不缓存。
+     */
+    public PermissionIndex get(Long userId, Supplier<PermissionIndex> loader) {
+        long now = System.currentTimeMillis();
+        long loadVersion;
+        synchronized (cache) {
+            Entry entry = cache.get(userId);
+            if (entry != null && entry.expireAt > now) {
+                return entry.index;
+            }
+            loadVersion = version;
+        }
+        PermissionIndex index = loader.get();
+        synchronized (cache) {
+            if (loadVersion == version) {
+                cache.put(userId, new Entry(index, now + ttlMillis));
+            }
+        }
+        return index;
+    }
+
+    public void evict(Long userId) {
+        synchronized (cache) {
+            version++;
+            cache.remove(userId);
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            version++;
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private void clearIfPermission(RelationalPath<?> entity) {
+        if (entity != null && permission.getSchemaAndTable().equals(entity.getSchemaAndTable())) {
+            clear();
+        }
+    }
+
+    @Override
+    public void notifyDelete(RelationalPath<?> entity, QueryMetadata md) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyDeletes(RelationalPath<?> entity, List<QueryMetadata> batches) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyMerge(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> keys,
+                            List<Path<?>> columns, List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyMerges(RelationalPath<?> entity, QueryMetadata md, List<SQLMergeBatch> batches) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyInsert(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> columns,
+                             List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyInserts(RelationalPath<?> entity, QueryMetadata md, List<SQLInsertBatch> batches) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyUpdate(RelationalPath<?> entity, QueryMetadata md, Map<Path<?>, Expression<?>> updates) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void notifyUpdates(RelationalPath<?> entity, List<SQLUpdateBatch> batches) {
+        clearIfPermission(entity);
+    }
+
+    @Override
+    public void end(SQLListenerContext context) {
+        // 执行结束后再失效一次，避免执行期间的并发检查缓存旧数据
+        clearIfPermission(context.getEntity());
+    }
+
+    private static class Entry {
+
+        private final PermissionIndex index;
+        private final long expireAt;
+
+        Entry(PermissionIndex index, long expireAt) {
+            this.index = index;
+            this.expireAt = expireAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package canuran.faster.security;
+
+import canuran.common.utils.ProtostuffSerializer;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 登录用户缓存，以用户名为键保存序列化后的 SecurityUser（包括权限树），超出容量时淘汰最久未使用的。
+ * <p>
+ * 每次获取时反序列化出新对象，认证过程对用户对象的修改不会影响缓存。
+ * 用户、角色或权限变化时由业务方法调用失效方法，在事务中时提交后再失效一次，避免并发认证缓存提交前的数据。
+ * 失效方法只作用于当前节点，其他节点在过期后重新加载，默认5分钟。
+ *
+ * @author canuran
+ */
+public class PrincipalCache {
+
+    private final long ttlMillis;
+    private final Map<String, Entry> cache;
+    private long version;
+
+    public PrincipalCache() {
+        this(300000L, 10000);
+    }
+
+    public PrincipalCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<String, Entry>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取用户，不存在或已过期时重新加载，加载时不加锁，不缓存空值，加载期间有失效时不缓存。
+     */
+    public SecurityUser get(String username, Function<String, SecurityUser> loader) {
+        long now = System.currentTimeMillis();
+        long loadVersion;
+        synchronized (cache) {
+            Entry entry = cache.get(username);
+            if (entry != null && entry.expireAt > now) {
+                return ProtostuffSerializer.deserialize(entry.bytes);
+            }
+            loadVersion = version;
+        }
+        SecurityUser securityUser = loader.apply(username);
+        if (securityUser != null) {
+            byte[] bytes = ProtostuffSerializer.serialize(securityUser);
+            synchronized (cache) {
+                if (loadVersion == version) {
+                    cache.put(username, new Entry(securityUser.getUserId(), bytes, now + ttlMillis));
+                }
+            }
+        }
+        return securityUser;
+    }
+
+    /**
+     * 用户信息或角色变化时使该用户失效。
+     */
+    public void evictUser(Long userId) {
+        afterCommit(() -> {
+            synchronized (cache) {
+                version++;
+                Iterator<Entry> iterator = cache.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().userId.equals(userId)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 角色的权限或权限本身变化时全部失效。
+     */
+    public void clear() {
+        afterCommit(() -> {
+            synchronized (cache) {
+                version++;
+                cache.clear();
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static class Entry {
+
+        private final Long userId;
+        private final byte[] bytes;
+        private final long expireAt;
+
+        Entry(Long userId, byte[] bytes, long expireAt) {
+            this.userId = userId;
+            this.bytes = bytes;
+            this.expireAt = expireAt;
+        }
+
+    }
+
+}
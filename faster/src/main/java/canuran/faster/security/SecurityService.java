@@ -16,6 +16,8 @@ public interface SecurityService {
 
     SecurityUser getSecurityUser(String username);
 
+    void revokeTokens(Long userId);
+
     List<Authority> getAllAuthority();
 
     void addAuthority(Authority authority);
@@ -13,10 +13,10 @@ import canuran.faster.security.vo.RoleWithAuthority;
 import canuran.query.BaseQueryFactory;
 import canuran.query.paging.Page;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -43,6 +43,10 @@ public class SecurityServiceImpl implements SecurityService {
     private BaseQueryFactory queryFactory;
     @Autowired
     private LongSupplier longSupplier;
+    @Autowired
+    private PermissionIndexCache permissionIndexCache;
+    @Autowired
+    private PrincipalCache principalCache;
 
     public static final String CODE_REGEXP = "[a-zA-Z]|([a-zA-Z][a-zA-Z0-9_]*[a-zA-Z0-9])";
 
@@ -56,9 +60,26 @@ public class SecurityServiceImpl implements SecurityService {
                 .fetchOne();
     }
 
+    /**
+     * Token版本加一，该用户已签发的Token全部失效。
+     */
+    @Override
+    public void revokeTokens(Long userId) {
+        Asserts.of(userId).name("用户ID").notNull();
+
+        queryFactory.update(user)
+                .set(user.tokenVersion, user.tokenVersion.add(1))
+                .whereEqKey(userId)
+                .execute();
+        principalCache.evictUser(userId);
+    }
+
     @Override
     public List<Authority> getAllAuthority() {
-        return queryFactory.selectFrom(authority).fetch();
+        // 权限很少变化，本应用修改权限时缓存自动失效
+        return queryFactory.selectFrom(authority)
+                .cached(Duration.ofMinutes(1))
+                .fetch();
     }
 
     @Override
@@ -79,6 +100,7 @@ public class SecurityServiceImpl implements SecurityService {
         authorityParam.setCreateTime(new Date());
         authorityParam.setAuthorityId(longSupplier.getAsLong());
         queryFactory.insert(authority).insertBean(authorityParam);
+        authorityDao.evictRoleAuthorities();
     }
 
     private void checkCommonSave(Authority authorityParam) {
@@ -116,6 +138,9 @@ public class SecurityServiceImpl implements SecurityService {
 
         authorityParam.setCode(authorityParam.getCode().toUpperCase());
         queryFactory.update(authority).updateBean(authorityParam);
+        authorityDao.evictRoleAuthorities();
+        // 权限编码或层级变化影响所有拥有该权限的用户
+        principalCache.clear();
     }
 
     @Override
@@ -132,6 +157,7 @@ public class SecurityServiceImpl implements SecurityService {
                 .lessThan(1, "该权限有角色正在使用");
 
         queryFactory.delete(authority).deleteByKey(authorityId);
+        authorityDao.evictRoleAuthorities();
     }
 
     @Override
@@ -140,7 +166,7 @@ public class SecurityServiceImpl implements SecurityService {
                 .orderBy(authority.authorityId.asc())
                 .fitBean(AuthorityNode.class)
                 .fetch();
-        return TreeUtils.toTree(nodes,
+        return TreeUtils.toLongKeyTree(nodes,
                 ArrayList::new,
                 AuthorityNode::getAuthorityId,
                 AuthorityNode::getParentId,
@@ -187,6 +213,7 @@ public class SecurityServiceImpl implements SecurityService {
 
         // 批量建立新的角色权限关系
         addRoleAuthorities(roleWithAuthority);
+        authorityDao.evictRoleAuthorities();
     }
 
     @Override
@@ -216,6 +243,8 @@ public class SecurityServiceImpl implements SecurityService {
 
         // 批量建立新的角色权限关系
         addRoleAuthorities(roleWithAuthority);
+        authorityDao.evictRoleAuthorities();
+        principalCache.clear();
     }
 
     @Override
@@ -234,6 +263,7 @@ public class SecurityServiceImpl implements SecurityService {
                 .execute();
 
         queryFactory.delete(role).deleteByKey(roleId);
+        authorityDao.evictRoleAuthorities();
     }
 
     private void addRoleAuthorities(RoleWithAuthority roleWithAuthority) {
@@ -254,19 +284,18 @@ public class SecurityServiceImpl implements SecurityService {
     }
 
     @Override
-    @Cacheable(cacheNames = "PermissionCache", key = "#userId.toString() + #action + #targetType + #targetId")
     public boolean userHasPermission(Long userId, String action,
                                      String targetType, String targetId) {
         Asserts.of(userId).name("用户ID").notNull();
         Asserts.of(action).name("权限操作").hasText();
         Asserts.of(targetId).name("资源ID").notNull();
 
-        return queryFactory.selectFrom(permission)
-                .where(permission.userId.eq(userId))
-                .where(permission.action.eq(action))
-                .where(permission.targetId.eq(targetId))
-                .whereIfHasText(targetType, permission.targetType::eq)
-                .fetchCount() > 0;
+        // 首次检查时加载用户的全部资源许可，之后在内存中查找
+        return permissionIndexCache.get(userId, () -> PermissionIndex.of(
+                queryFactory.selectFrom(permission)
+                        .where(permission.userId.eq(userId))
+                        .fetch()))
+                .hasPermission(action, targetType, targetId);
     }
 
 }
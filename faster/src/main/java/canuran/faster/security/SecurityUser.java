@@ -24,11 +24,19 @@ public class SecurityUser implements UserDetails {
 
     private String password;
 
+    /**
+     * Token版本，与Token中的版本不同时Token失效。
+     */
+    private Integer tokenVersion;
+
     /**
      * 功能点权限。
      */
     private List<AuthorityNode> authorities;
     private List<AuthorityNode> authorityTree;
+    // 权限位图及生成它的注册表，反序列化后或注册表重建后重新计算
+    private transient long[] authorityBits;
+    private transient AuthorityRegistry bitsRegistry;
 
     /**
      * 注解中hasRole表达式会调用该方法。
@@ -39,6 +47,20 @@ public class SecurityUser implements UserDetails {
         return authorities;
     }
 
+    /**
+     * 是否拥有该权限编码，检查权限位图中对应的位。
+     */
+    public boolean hasAuthority(String code) {
+        AuthorityRegistry registry = AuthorityRegistry.current();
+        long[] bits = authorityBits;
+        if (bits == null || bitsRegistry != registry) {
+            bits = registry.toBits(authorities);
+            authorityBits = bits;
+            bitsRegistry = registry;
+        }
+        return registry.hasBit(bits, code);
+    }
+
     public List<AuthorityNode> getAuthorityTree() {
         return authorityTree;
     }
@@ -48,7 +70,8 @@ public class SecurityUser implements UserDetails {
      */
     public void setAuthorities(List<AuthorityNode> authorities) {
         this.authorities = authorities;
-        this.authorityTree = TreeUtils.toTree(authorities,
+        this.authorityBits = null;
+        this.authorityTree = TreeUtils.toLongKeyTree(authorities,
                 ArrayList::new,
                 AuthorityNode::getAuthorityId,
                 AuthorityNode::getParentId,
@@ -64,6 +87,15 @@ public class SecurityUser implements UserDetails {
         this.userId = userId;
     }
 
+    @JsonIgnore
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     @Override
     public String getUsername() {
         return username;
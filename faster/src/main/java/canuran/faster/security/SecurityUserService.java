@@ -18,13 +18,23 @@ public class SecurityUserService implements UserDetailsService {
 
     @Autowired
     private SecurityService securityService;
+    @Autowired
+    private PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
+        SecurityUser securityUser = principalCache.get(username, this::loadSecurityUser);
+        Asserts.of(securityUser).name("用户").notNull(() -> new UsernameNotFoundException("用户名不存在或已删除"));
+        return securityUser;
+    }
+
+    private SecurityUser loadSecurityUser(String username) {
         // 获取用户信息
         SecurityUser securityUser = securityService.getSecurityUser(username);
-        Asserts.of(securityUser).name("用户").notNull(() -> new UsernameNotFoundException("用户名不存在或已删除"));
+        if (securityUser == null) {
+            return null;
+        }
 
         // 获取用户功能权限
         List<AuthorityNode> authorities = securityService.getUserAuthorities(securityUser.getUserId());
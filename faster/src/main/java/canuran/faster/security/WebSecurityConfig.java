@@ -2,18 +2,25 @@ package canuran.faster.security;
 
 import canuran.common.ResultMessage;
 import canuran.common.utils.GsonUtils;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
 import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
 
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -34,12 +41,31 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     private static final String FAILURE = GsonUtils.toJson(
             new ResultMessage<>().toFailure("授权验证失败！"));
 
+    @Autowired
+    private SecurityService securityService;
+
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+
+    @Value("${jwt.expireSeconds:7200}")
+    private int jwtExpireSeconds = 7200;
+
     @Override
     @Bean
     public UserDetailsService userDetailsService() {
         return new SecurityUserService();
     }
 
+    @Bean
+    public PrincipalCache principalCache() {
+        return new PrincipalCache();
+    }
+
+    @Bean
+    public JwtTokenManager jwtTokenManager() {
+        return new JwtTokenManager(jwtSecret, jwtExpireSeconds);
+    }
+
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
         auth.userDetailsService(userDetailsService());
@@ -50,6 +76,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         // 允许跨域访问
         security.csrf().disable().headers()
                 .frameOptions().sameOrigin()
+                // 不使用会话，登录后通过Token认证，多个节点之间不需要会话保持
+                .and()
+                .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 // 所有请求都需要验证
                 .and()
                 .authorizeRequests()
@@ -70,8 +100,14 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 // 登出页面允许所有人访问
                 .and()
                 .logout()
+                .addLogoutHandler(tokenLogoutHandler())
+                .deleteCookies(JwtAuthenticationFilter.TOKEN_COOKIE)
                 .logoutSuccessHandler(logoutSuccessHandler())
-                .permitAll();
+                .permitAll()
+                // 登录入口之前检查Token
+                .and()
+                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenManager(), userDetailsService()),
+                        UsernamePasswordAuthenticationFilter.class);
     }
 
     private AuthenticationEntryPoint authenticationEntryPoint() {
@@ -80,15 +116,40 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         };
     }
 
+    /**
+     * 登出时使该用户已签发的Token全部失效，复制出去的Token也不能继续使用。
+     */
+    private LogoutHandler tokenLogoutHandler() {
+        return (request, response, authentication) -> {
+            Claims claims = jwtTokenManager().getClaims(JwtAuthenticationFilter.getToken(request));
+            Long userId = claims == null ? null : jwtTokenManager().getUserId(claims);
+            if (userId != null) {
+                securityService.revokeTokens(userId);
+            }
+        };
+    }
+
     private LogoutSuccessHandler logoutSuccessHandler() {
         return (request, response, authentication) -> {
             sendRedirectOrString(request, response, "/login.html", SUCCESS);
         };
     }
 
+    /**
+     * 登录成功后签发Token，页面请求保存到Cookie，其他请求在响应头和数据中返回。
+     */
     private AuthenticationSuccessHandler loginSuccessHandler() {
         return (request, response, authentication) -> {
-            sendRedirectOrString(request, response, "/index.html", SUCCESS);
+            String token = jwtTokenManager().createToken((SecurityUser) authentication.getPrincipal());
+            Cookie cookie = new Cookie(JwtAuthenticationFilter.TOKEN_COOKIE, token);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setSecure(request.isSecure());
+            cookie.setMaxAge(jwtTokenManager().getExpireSeconds());
+            response.addCookie(cookie);
+            response.setHeader("Authorization", "Bearer " + token);
+            sendRedirectOrString(request, response, "/index.html",
+                    GsonUtils.toJson(new ResultMessage<>(token)));
         };
     }
 
@@ -5,6 +5,7 @@ import canuran.faster.dao.UserDao;
 import canuran.faster.dao.entity.Role;
 import canuran.faster.dao.entity.User;
 import canuran.faster.dao.entity.UserRole;
+import canuran.faster.security.PrincipalCache;
 import canuran.faster.user.vo.FindUserParam;
 import canuran.faster.user.vo.UserWithRole;
 import canuran.query.BaseQueryFactory;
@@ -35,6 +36,8 @@ public class UserServiceImpl implements UserService {
     private BaseQueryFactory queryFactory;
     @Autowired
     private LongSupplier longSupplier;
+    @Autowired
+    private PrincipalCache principalCache;
 
     @Override
     @Transactional(rollbackFor = Throwable.class)
@@ -105,6 +108,7 @@ public class UserServiceImpl implements UserService {
                 .where(userRole.userId.eq(userWithRole.getUserId()))
                 .execute();
         addUserRoles(userWithRole);
+        principalCache.evictUser(userWithRole.getUserId());
 
         // 更新用户
         return queryFactory.update(user)
@@ -130,6 +134,7 @@ public class UserServiceImpl implements UserService {
         queryFactory.delete(userRole)
                 .where(userRole.userId.eq(userId))
                 .execute();
+        principalCache.evictUser(userId);
         return queryFactory.delete(user).deleteByKey(userId);
     }
 
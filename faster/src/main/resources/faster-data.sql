@@ -189,17 +189,18 @@ CREATE TABLE `user` (
   `gender` varchar(16) NOT NULL,
   `birthday` date DEFAULT NULL,
   `create_time` datetime NOT NULL,
+  `token_version` int(11) NOT NULL DEFAULT '0',
   PRIMARY KEY (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 -- ----------------------------
 -- Records of user
 -- ----------------------------
-INSERT INTO `user` VALUES (123456123456123451, 'canuran', 'yb', '元宝', 'MALE', '2000-02-10', '2017-08-23 18:43:52');
-INSERT INTO `user` VALUES (123456123456123452, 'Rose', 'zx', '紫霞', 'FEMALE', '2002-05-20', '2017-08-24 12:06:02');
-INSERT INTO `user` VALUES (123456123456123453, 'Jay', 'zjl', '周杰伦', 'MALE', '2018-01-21', '2018-01-21 17:19:51');
-INSERT INTO `user` VALUES (123456123456123454, 'Zanilia', 'zly', '赵丽颖', 'FEMALE', '2018-01-21', '2018-01-21 17:21:40');
-INSERT INTO `user` VALUES (123456123456123455, 'Mini', 'ym', '杨幂', 'FEMALE', '2018-01-21', '2018-01-21 17:27:05');
+INSERT INTO `user` VALUES (123456123456123451, 'canuran', 'yb', '元宝', 'MALE', '2000-02-10', '2017-08-23 18:43:52', 0);
+INSERT INTO `user` VALUES (123456123456123452, 'Rose', 'zx', '紫霞', 'FEMALE', '2002-05-20', '2017-08-24 12:06:02', 0);
+INSERT INTO `user` VALUES (123456123456123453, 'Jay', 'zjl', '周杰伦', 'MALE', '2018-01-21', '2018-01-21 17:19:51', 0);
+INSERT INTO `user` VALUES (123456123456123454, 'Zanilia', 'zly', '赵丽颖', 'FEMALE', '2018-01-21', '2018-01-21 17:21:40', 0);
+INSERT INTO `user` VALUES (123456123456123455, 'Mini', 'ym', '杨幂', 'FEMALE', '2018-01-21', '2018-01-21 17:27:05', 0);
 
 -- ----------------------------
 -- Table structure for user_role
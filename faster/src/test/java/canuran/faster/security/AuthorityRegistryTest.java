@@ -0,0 +1,70 @@
+package canuran.faster.security;
+
+import canuran.faster.security.vo.AuthorityNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 权限编码注册表测试，序号只由数据决定，重建后已改名的编码不再保留。
+ *
+ * @author canuran
+ */
+public class AuthorityRegistryTest {
+
+    @After
+    public void reset() {
+        AuthorityRegistry.reload(Collections.emptyList());
+    }
+
+    @Test
+    public void stableIndexes() {
+        AuthorityRegistry.reload(Arrays.asList(AuthorityCodes.USER_MANAGE, "REPORT_VIEW", "REPORT_EXPORT"));
+        AuthorityRegistry first = AuthorityRegistry.current();
+        // 重新加载相同的数据，或者先查询过其他编码，序号都不变
+        first.indexOf("UNKNOWN");
+        AuthorityRegistry.reload(Arrays.asList(AuthorityCodes.USER_MANAGE, "REPORT_VIEW", "REPORT_EXPORT"));
+        AuthorityRegistry second = AuthorityRegistry.current();
+        Assert.assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(first.codeOf(i), second.codeOf(i));
+        }
+        Assert.assertEquals(-1, second.indexOf("UNKNOWN"));
+        // 常量在前，数据库中的其他编码按权限ID的顺序在后
+        Assert.assertTrue(second.indexOf(AuthorityCodes.USER_MANAGE) < second.indexOf("REPORT_VIEW"));
+        Assert.assertEquals(second.indexOf("REPORT_VIEW") + 1, second.indexOf("REPORT_EXPORT"));
+    }
+
+    @Test
+    public void renamedCodes() {
+        AuthorityRegistry.reload(Collections.singletonList("REPORT_VIEW"));
+        SecurityUser securityUser = new SecurityUser();
+        securityUser.setAuthorities(nodes("REPORT_VIEW", AuthorityCodes.USER_MANAGE));
+        Assert.assertTrue(securityUser.hasAuthority("REPORT_VIEW"));
+
+        AuthorityRegistry.reload(Arrays.asList("REPORT_READ", "REPORT_EXPORT"));
+        Assert.assertEquals(-1, AuthorityRegistry.current().indexOf("REPORT_VIEW"));
+        // 重建后位图重新计算，旧编码失效，新编码的序号不会被旧位图误判
+        Assert.assertFalse(securityUser.hasAuthority("REPORT_VIEW"));
+        Assert.assertFalse(securityUser.hasAuthority("REPORT_READ"));
+        Assert.assertTrue(securityUser.hasAuthority(AuthorityCodes.USER_MANAGE));
+    }
+
+    private static List<AuthorityNode> nodes(String... codes) {
+        List<AuthorityNode> nodes = new ArrayList<>();
+        long id = 1L;
+        for (String code : codes) {
+            AuthorityNode node = new AuthorityNode();
+            node.setAuthorityId(id++);
+            node.setCode(code);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+}
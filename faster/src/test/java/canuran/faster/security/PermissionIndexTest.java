@@ -0,0 +1,57 @@
+package canuran.faster.security;
+
+import canuran.faster.dao.entity.Permission;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * 资源许可索引测试，比较方式与数据库的 utf8_general_ci 排序规则一致。
+ *
+ * @author canuran
+ */
+public class PermissionIndexTest {
+
+    private final PermissionIndex index = PermissionIndex.of(Arrays.asList(
+            permission("edit", "article", "7"),
+            permission("edit", "article", "007"),
+            permission("View", "Article", "Abc "),
+            permission("view", "file", "café")));
+
+    @Test
+    public void exactMatch() {
+        Assert.assertTrue(index.hasPermission("edit", "article", "7"));
+        Assert.assertTrue(index.hasPermission("edit", "article", "007"));
+        Assert.assertFalse(index.hasPermission("edit", "article", "07"));
+        Assert.assertFalse(index.hasPermission("edit", "file", "7"));
+        Assert.assertFalse(index.hasPermission("delete", "article", "7"));
+    }
+
+    @Test
+    public void ignoreCaseAndTrailingSpaces() {
+        Assert.assertTrue(index.hasPermission("EDIT", "Article", "7"));
+        Assert.assertTrue(index.hasPermission("view", "article", "abc"));
+        Assert.assertTrue(index.hasPermission("view ", "ARTICLE  ", "ABC  "));
+        Assert.assertTrue(index.hasPermission("View", "File", "CAFE"));
+        // 开头的空格不忽略
+        Assert.assertFalse(index.hasPermission("view", "article", " abc"));
+    }
+
+    @Test
+    public void anyTargetType() {
+        Assert.assertTrue(index.hasPermission("view", null, "abc"));
+        Assert.assertTrue(index.hasPermission("VIEW", " ", "Café"));
+        Assert.assertFalse(index.hasPermission("view", "", "7"));
+        Assert.assertFalse(index.hasPermission("view", null, null));
+    }
+
+    private static Permission permission(String action, String targetType, String targetId) {
+        Permission permission = new Permission();
+        permission.setAction(action);
+        permission.setTargetType(targetType);
+        permission.setTargetId(targetId);
+        return permission;
+    }
+
+}
@@ -0,0 +1,103 @@
+package canuran.query.benchmark;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.benchmark.entity.BenchUser;
+import canuran.query.benchmark.query.QBenchUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同批次大小的批量插入性能，每次调用插入 1000 行，吞吐量按行计算。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(BatchInsertBenchmark.ROWS)
+public class BatchInsertBenchmark {
+
+    static final int ROWS = 1000;
+
+    @Param({"1", "10", "100", "1000"})
+    private int batchSize;
+
+    private BenchmarkDatabase database;
+    private BaseQueryFactory queryFactory;
+    private List<List<BenchUser>> batches;
+
+    @Setup
+    public void setup() throws SQLException {
+        database = new BenchmarkDatabase();
+        queryFactory = database.queryFactory();
+        batches = new ArrayList<>();
+        Date now = new Date();
+        List<BenchUser> batch = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            BenchUser user = new BenchUser();
+            user.setUsername("user" + i);
+            user.setPassword("password" + i);
+            user.setGender(i % 3);
+            user.setAddressId(i % 100);
+            user.setCreateTime(now);
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+    }
+
+    /**
+     * 每轮清空数据，避免表越来越大影响结果。
+     */
+    @Setup(Level.Iteration)
+    public void clear() throws SQLException {
+        database.resetUsers(0);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public long jdbcBatch() {
+        long rows = 0L;
+        for (List<BenchUser> batch : batches) {
+            rows += queryFactory.insert(QBenchUser.benchUser).insertBeans(batch);
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long multiRowBulk() {
+        long rows = 0L;
+        for (List<BenchUser> batch : batches) {
+            rows += queryFactory.insert(QBenchUser.benchUser).batchToBulk().insertBeans(batch);
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long mysqlBulk() {
+        long rows = 0L;
+        for (List<BenchUser> batch : batches) {
+            rows += queryFactory.insertMysql(QBenchUser.benchUser).batchToBulk()
+                    .insertDuplicateUpdates(batch, QBenchUser.benchUser.password);
+        }
+        return rows;
+    }
+
+}
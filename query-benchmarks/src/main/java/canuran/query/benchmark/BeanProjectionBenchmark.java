@@ -0,0 +1,84 @@
+package canuran.query.benchmark;
+
+import canuran.query.benchmark.entity.BenchUser;
+import canuran.query.benchmark.query.QBenchUser;
+import canuran.query.support.FitBeanCache;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.QBean;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean投影性能，包括 fitBean 从查询工厂缓存获取投影的开销和每行的填充开销，不访问数据库。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeanProjectionBenchmark {
+
+    @Param({"1", "1000"})
+    private int rows;
+
+    private final FitBeanCache fitBeanCache = new FitBeanCache();
+    private Expression<?>[] columns;
+    private QBean<BenchUser> bean;
+    private Object[][] beanRows;
+    private Object[][] fitRows;
+
+    @Setup
+    public void setup() {
+        QBenchUser user = QBenchUser.benchUser;
+        columns = user.all();
+        bean = Projections.bean(BenchUser.class, columns);
+        beanRows = createRows(bean);
+        // fitBean 按Bean属性匹配，参数顺序可能与查询字段不同
+        fitRows = createRows(fitBeanCache.get(BenchUser.class, false, columns));
+    }
+
+    private Object[][] createRows(QBean<BenchUser> projection) {
+        List<Expression<?>> args = projection.getArgs();
+        Date now = new Date();
+        Object[][] values = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            Object[] row = new Object[args.size()];
+            for (int j = 0; j < row.length; j++) {
+                Class<?> type = args.get(j).getType();
+                row[j] = type == String.class ? "value" + i : type == Integer.class ? i : now;
+            }
+            values[i] = row;
+        }
+        return values;
+    }
+
+    @Benchmark
+    public void queryBean(Blackhole blackhole) {
+        fill(bean, beanRows, blackhole);
+    }
+
+    @Benchmark
+    public void fitBean(Blackhole blackhole) {
+        fill(fitBeanCache.get(BenchUser.class, false, columns), fitRows, blackhole);
+    }
+
+    @Benchmark
+    public void fitLambdaBean(Blackhole blackhole) {
+        fill(fitBeanCache.get(BenchUser.class, true, columns), fitRows, blackhole);
+    }
+
+    private void fill(QBean<BenchUser> projection, Object[][] values, Blackhole blackhole) {
+        for (Object[] row : values) {
+            blackhole.consume(projection.newInstance(row));
+        }
+    }
+
+}
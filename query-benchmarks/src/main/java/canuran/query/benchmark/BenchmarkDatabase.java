@@ -0,0 +1,73 @@
+package canuran.query.benchmark;
+
+import canuran.query.BaseQueryFactory;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * 性能测试使用的H2内存数据库，每个实例使用独立的库。
+ *
+ * @author canuran
+ */
+public class BenchmarkDatabase {
+
+    private final Connection connection;
+
+    public BenchmarkDatabase() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bench" + System.nanoTime() + ";MODE=MySQL");
+        // 所有操作共用一个连接，它也使内存库在测试期间不被删除
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bench_user (user_id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "username VARCHAR(128) NOT NULL, password VARCHAR(128) NOT NULL, gender INT, "
+                    + "address_id INT, create_time TIMESTAMP NOT NULL)");
+        }
+    }
+
+    /**
+     * 创建不带监听器的查询工厂，避免日志影响测试结果。
+     * <p>
+     * 查询和语句执行后不会关闭连接，每次从数据源获取会泄漏连接，因此复用同一个连接，也不计入建立连接的开销。
+     */
+    public BaseQueryFactory queryFactory() {
+        return new BaseQueryFactory(new Configuration(H2Templates.builder().build()), () -> connection);
+    }
+
+    /**
+     * 清空并插入指定数量的用户。
+     */
+    public void resetUsers(int rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE bench_user RESTART IDENTITY");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO bench_user "
+                + "(username, password, gender, address_id, create_time) VALUES (?, ?, ?, ?, ?)")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (int i = 1; i <= rows; i++) {
+                statement.setString(1, "user" + i);
+                statement.setString(2, "password" + i);
+                statement.setInt(3, i % 3);
+                statement.setInt(4, i % 100);
+                statement.setTimestamp(5, now);
+                statement.addBatch();
+                if (i % 1000 == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+}
@@ -0,0 +1,55 @@
+package canuran.query.benchmark;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.benchmark.entity.BenchUser;
+import canuran.query.benchmark.query.QBenchUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较 selectFrom 使用 QBean 反射填充和使用 EntityMapper 直接从结果集填充的性能。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityMapperBenchmark {
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private BaseQueryFactory queryBean;
+    private BaseQueryFactory entityMapper;
+
+    @Setup
+    public void setup() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.resetUsers(rows);
+        queryBean = database.queryFactory();
+        entityMapper = database.queryFactory().entityMappers(true);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<BenchUser> queryBean() {
+        return queryBean.selectFrom(QBenchUser.benchUser).fetch();
+    }
+
+    @Benchmark
+    public List<BenchUser> entityMapper() {
+        return entityMapper.selectFrom(QBenchUser.benchUser).fetch();
+    }
+
+}
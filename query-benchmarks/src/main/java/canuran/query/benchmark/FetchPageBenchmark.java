@@ -0,0 +1,64 @@
+package canuran.query.benchmark;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.benchmark.entity.BenchUser;
+import canuran.query.benchmark.query.QBenchUser;
+import canuran.query.paging.CountStrategy;
+import canuran.query.paging.Page;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页查询性能，对比总数统计策略和窗口函数统计。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchPageBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"EXACT", "CACHED"})
+    private CountStrategy countStrategy;
+
+    @Param({"false", "true"})
+    private boolean windowCount;
+
+    private BenchmarkDatabase database;
+    private BaseQueryFactory queryFactory;
+    private int page;
+
+    @Setup
+    public void setup() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.resetUsers(rows);
+        queryFactory = database.queryFactory();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public Page<BenchUser> fetchPage() {
+        QBenchUser user = QBenchUser.benchUser;
+        page = (page + 1) % 50;
+        return queryFactory.selectFrom(user)
+                .where(user.gender.eq(1))
+                .orderBy(user.userId.asc())
+                .pagingIfNotnull(page + 1, 20)
+                .pageCountStrategy(countStrategy)
+                .pageWindowCount(windowCount)
+                .fetchPage();
+    }
+
+}
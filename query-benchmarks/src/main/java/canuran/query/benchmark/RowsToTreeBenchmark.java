@@ -0,0 +1,69 @@
+package canuran.query.benchmark;
+
+import canuran.query.QueryUtils;
+import canuran.query.benchmark.entity.BenchUser;
+import canuran.query.benchmark.query.QBenchUser;
+import canuran.query.benchmark.vo.BenchGroup;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.QBean;
+import com.querydsl.core.types.QTuple;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关联查询结果转换为树形对象的性能，每个父对象平均有10个子对象，不访问数据库。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RowsToTreeBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private QBean<BenchGroup> qGroup;
+    private QBenchUser qUser;
+    private List<Tuple> tuples;
+
+    @Setup
+    public void setup() {
+        qUser = QBenchUser.benchUser;
+        qGroup = Projections.bean(BenchGroup.class, qUser.addressId);
+        QTuple qTuple = Projections.tuple(qGroup, qUser);
+        int groups = Math.max(rows / 10, 1);
+        tuples = new ArrayList<>(rows);
+        // 与查询结果相同，每行都是新的父对象
+        for (int i = 0; i < rows; i++) {
+            BenchGroup group = new BenchGroup();
+            group.setAddressId(i % groups);
+            BenchUser user = new BenchUser();
+            user.setUserId(i);
+            user.setAddressId(group.getAddressId());
+            tuples.add(qTuple.newInstance(group, user));
+        }
+    }
+
+    @Benchmark
+    public List<BenchGroup> rowsToTree() {
+        List<BenchGroup> tree = QueryUtils.rowsToTree(tuples, qGroup, qUser,
+                BenchGroup::getAddressId,
+                BenchUser::getUserId,
+                BenchGroup::getUsers,
+                BenchGroup::setUsers);
+        // 父对象在多次调用间共用，清空子对象保证每次结果相同
+        for (BenchGroup group : tree) {
+            group.setUsers(null);
+        }
+        return tree;
+    }
+
+}
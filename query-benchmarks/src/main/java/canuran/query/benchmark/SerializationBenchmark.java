@@ -0,0 +1,79 @@
+package canuran.query.benchmark;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.benchmark.query.QBenchUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL序列化性能，对比是否使用SQL模板缓存，不访问数据库。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"true", "false"})
+    private boolean templateCache;
+
+    private BenchmarkDatabase database;
+    private BaseQueryFactory queryFactory;
+    private int sequence;
+
+    @Setup
+    public void setup() throws SQLException {
+        database = new BenchmarkDatabase();
+        queryFactory = database.queryFactory();
+        if (!templateCache) {
+            queryFactory.templateCache(null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public String select() {
+        QBenchUser user = QBenchUser.benchUser;
+        int value = sequence++;
+        return queryFactory.selectFrom(user)
+                .where(user.username.like("user" + value + "%"), user.gender.in(value % 3, 2))
+                .orderBy(user.userId.desc())
+                .limit(20)
+                .offset(value % 100)
+                .getSQL().getSQL();
+    }
+
+    @Benchmark
+    public String insert() {
+        QBenchUser user = QBenchUser.benchUser;
+        int value = sequence++;
+        return queryFactory.insert(user)
+                .set(user.username, "user" + value)
+                .set(user.password, "password")
+                .set(user.gender, value % 3)
+                .set(user.createTime, new Date())
+                .getSQL().get(0).getSQL();
+    }
+
+    @Benchmark
+    public String update() {
+        QBenchUser user = QBenchUser.benchUser;
+        int value = sequence++;
+        return queryFactory.update(user)
+                .set(user.password, "password" + value)
+                .where(user.userId.eq(value))
+                .getSQL().get(0).getSQL();
+    }
+
+}
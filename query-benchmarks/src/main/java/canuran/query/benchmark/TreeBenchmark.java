@@ -0,0 +1,109 @@
+package canuran.query.benchmark;
+
+import canuran.common.utils.TreeUtils;
+import canuran.query.benchmark.vo.BenchNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点列表转换为树及遍历树的性能，对比通用Key索引和long索引、顺序和并行遍历，约1%的节点为根节点或找不到父节点。
+ *
+ * @author canuran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int nodes;
+
+    private List<BenchNode> list;
+    private List<BenchNode> tree;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(nodes);
+        list = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            BenchNode node = new BenchNode();
+            node.setNodeId((long) i);
+            int type = random.nextInt(100);
+            if (i == 0 || type == 0) {
+                node.setParentId(null);
+            } else if (type == 1) {
+                node.setParentId((long) -i);
+            } else {
+                node.setParentId((long) random.nextInt(i));
+            }
+            list.add(node);
+        }
+        // 与查询结果相同，父节点不一定在子节点之前
+        Collections.shuffle(list, random);
+        // 用于遍历测试的树，节点复制一份避免被转换测试清空
+        List<BenchNode> copies = new ArrayList<>(nodes);
+        for (BenchNode node : list) {
+            BenchNode copy = new BenchNode();
+            copy.setNodeId(node.getNodeId());
+            copy.setParentId(node.getParentId());
+            copies.add(copy);
+        }
+        tree = TreeUtils.toLongKeyTree(copies, ArrayList::new,
+                BenchNode::getNodeId,
+                BenchNode::getParentId,
+                BenchNode::getChildren,
+                BenchNode::setChildren);
+    }
+
+    @Benchmark
+    public List<BenchNode> toTree() {
+        List<BenchNode> tree = TreeUtils.toTree(list, ArrayList::new,
+                BenchNode::getNodeId,
+                BenchNode::getParentId,
+                BenchNode::getChildren,
+                BenchNode::setChildren);
+        clearChildren();
+        return tree;
+    }
+
+    @Benchmark
+    public List<BenchNode> toLongKeyTree() {
+        List<BenchNode> tree = TreeUtils.toLongKeyTree(list, ArrayList::new,
+                BenchNode::getNodeId,
+                BenchNode::getParentId,
+                BenchNode::getChildren,
+                BenchNode::setChildren);
+        clearChildren();
+        return tree;
+    }
+
+    @Benchmark
+    public List<BenchNode> filterTree() {
+        return TreeUtils.filterTree(tree, ArrayList::new, BenchNode::getChildren,
+                node -> node.getNodeId() % 10 == 0);
+    }
+
+    @Benchmark
+    public List<BenchNode> parallelFilterTree() {
+        return TreeUtils.parallelFilterTree(tree, ArrayList::new, BenchNode::getChildren,
+                node -> node.getNodeId() % 10 == 0);
+    }
+
+    /**
+     * 节点在多次调用间共用，清空子节点保证每次结果相同。
+     */
+    private void clearChildren() {
+        for (BenchNode node : list) {
+            node.setChildren(null);
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package canuran.query.benchmark.vo;
+
+import canuran.query.benchmark.entity.BenchUser;
+
+import java.util.List;
+
+/**
+ * 按地址分组的用户，用于树形转换测试。
+ */
+public class BenchGroup {
+
+    private Integer addressId;
+
+    private List<BenchUser> users;
+
+    public Integer getAddressId() {
+        return addressId;
+    }
+
+    public void setAddressId(Integer addressId) {
+        this.addressId = addressId;
+    }
+
+    public List<BenchUser> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<BenchUser> users) {
+        this.users = users;
+    }
+
+}
@@ -0,0 +1,40 @@
+package canuran.query.benchmark.vo;
+
+import java.util.List;
+
+/**
+ * 树节点，用于列表转树测试。
+ */
+public class BenchNode {
+
+    private Long nodeId;
+
+    private Long parentId;
+
+    private List<BenchNode> children;
+
+    public Long getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Long nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public List<BenchNode> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<BenchNode> children) {
+        this.children = children;
+    }
+
+}
@@ -5,10 +5,18 @@ import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.AbstractSQLQueryFactory;
 import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
 import com.querydsl.sql.RelationalPath;
 import com.querydsl.sql.RelationalPathBase;
 import canuran.query.clause.*;
+import canuran.query.support.CountCache;
 import canuran.query.support.DataSourceProvider;
+import canuran.query.support.EntityMapperCache;
+import canuran.query.support.FitBeanCache;
+import canuran.query.support.QueryCache;
+import canuran.query.support.QueryExecutor;
+import canuran.query.support.ReadWriteConnectionProvider;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import javax.sql.DataSource;
@@ -19,17 +27,167 @@ import java.sql.Connection;
  */
 public class BaseQueryFactory extends AbstractSQLQueryFactory<BaseQuery<?>> {
 
+    private boolean windowFunctions;
+    private boolean lambdaBeans;
+    private boolean entityMappers;
+    private boolean pageParallel;
+    private CountCache countCache = new CountCache();
+    private SQLTemplateCache templateCache = new SQLTemplateCache();
+    private FitBeanCache fitBeanCache = new FitBeanCache();
+    private EntityMapperCache entityMapperCache = new EntityMapperCache();
+    private QueryCache queryCache;
+    private QueryExecutor queryExecutor;
+    private final Provider<Connection> readConnection;
+
     public BaseQueryFactory(Configuration configuration, DataSource dataSource) {
-        super(configuration, new DataSourceProvider(dataSource));
+        this(configuration, new DataSourceProvider(dataSource));
     }
 
     public BaseQueryFactory(Configuration configuration, Provider<Connection> connProvider) {
         super(configuration, connProvider);
+        // 读写分离时查询使用从库连接
+        this.readConnection = connProvider instanceof ReadWriteConnectionProvider
+                ? ((ReadWriteConnectionProvider) connProvider).getReadProvider() : connProvider;
+        // H2支持窗口函数，MySQL 8以下版本不支持，需要手动开启
+        this.windowFunctions = configuration.getTemplates() instanceof H2Templates;
+    }
+
+    /**
+     * 设置数据库是否支持窗口函数，使用MySQL 8及以上版本时可开启。
+     */
+    public BaseQueryFactory windowFunctions(boolean windowFunctions) {
+        this.windowFunctions = windowFunctions;
+        return this;
+    }
+
+    public boolean isWindowFunctions() {
+        return windowFunctions;
+    }
+
+    /**
+     * 设置 fitBean 是否使用 LambdaMetafactory 生成的Setter代替反射，默认不使用。
+     */
+    public BaseQueryFactory lambdaBeans(boolean lambdaBeans) {
+        this.lambdaBeans = lambdaBeans;
+        return this;
+    }
+
+    public boolean isLambdaBeans() {
+        return lambdaBeans;
+    }
+
+    /**
+     * 设置 fitBean 匹配结果缓存，可调整容量，为空时每次都重新匹配属性。
+     */
+    public BaseQueryFactory fitBeanCache(FitBeanCache fitBeanCache) {
+        this.fitBeanCache = fitBeanCache;
+        return this;
+    }
+
+    public FitBeanCache getFitBeanCache() {
+        return fitBeanCache;
+    }
+
+    /**
+     * 设置查询实体时是否使用预先绑定的映射器直接从结果集填充，默认不使用。
+     */
+    public BaseQueryFactory entityMappers(boolean entityMappers) {
+        this.entityMappers = entityMappers;
+        return this;
+    }
+
+    public boolean isEntityMappers() {
+        return entityMappers;
+    }
+
+    /**
+     * 设置实体映射器缓存，可调整容量，为空时每次查询都重新创建映射器。
+     */
+    public BaseQueryFactory entityMapperCache(EntityMapperCache entityMapperCache) {
+        this.entityMapperCache = entityMapperCache;
+        return this;
+    }
+
+    public EntityMapperCache getEntityMapperCache() {
+        return entityMapperCache;
+    }
+
+    /**
+     * 设置分页时是否与统计总数并行查询数据，需要同时设置异步执行器，默认不并行。
+     */
+    public BaseQueryFactory pageParallel(boolean pageParallel) {
+        this.pageParallel = pageParallel;
+        return this;
+    }
+
+    public boolean isPageParallel() {
+        return pageParallel;
+    }
+
+    /**
+     * 设置分页总数缓存，可调整有效期和容量，为空时CACHED策略退化为精确统计。
+     */
+    public BaseQueryFactory countCache(CountCache countCache) {
+        this.countCache = countCache;
+        return this;
+    }
+
+    public CountCache getCountCache() {
+        return countCache;
+    }
+
+    /**
+     * 设置SQL模板缓存，可调整容量或查看命中率，为空时每次都重新序列化。
+     */
+    public BaseQueryFactory templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    public SQLTemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * 设置查询结果缓存并注册写入时失效的监听器，查询调用 cached() 时才使用，默认没有缓存。
+     */
+    public BaseQueryFactory queryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+        if (queryCache != null) {
+            configuration.addListener(queryCache.getListener());
+        }
+        return this;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * 设置异步执行器，线程数应与连接池大小一致，为空时不能使用异步方法。
+     */
+    public BaseQueryFactory queryExecutor(QueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+        return this;
+    }
+
+    public QueryExecutor getQueryExecutor() {
+        return queryExecutor;
     }
 
     @Override
     public BaseQuery<?> query() {
-        return new BaseQuery<Void>(connection, configuration);
+        return new BaseQuery<Void>(readConnection, configuration)
+                .windowFunctions(windowFunctions)
+                .lambdaBeans(lambdaBeans)
+                .fitBeanCache(fitBeanCache)
+                .entityMappers(entityMappers)
+                .entityMapperCache(entityMapperCache)
+                .pageParallel(pageParallel)
+                .countCache(countCache)
+                .templateCache(templateCache)
+                .queryCache(queryCache)
+                .queryExecutor(queryExecutor);
     }
 
     @Override
@@ -68,19 +226,30 @@ public class BaseQueryFactory extends AbstractSQLQueryFactory<BaseQuery<?>> {
     }
 
     public BaseInsert insert(RelationalPathBase<?> pathBase) {
-        return new BaseInsert(connection, configuration, pathBase);
+        return new BaseInsert(connection, configuration, pathBase)
+                .templateCache(templateCache)
+                .queryExecutor(queryExecutor);
     }
 
     public MysqlInsert insertMysql(RelationalPathBase<?> pathBase) {
-        return new MysqlInsert(connection, configuration, pathBase);
+        return new MysqlInsert(connection, configuration, pathBase)
+                .templateCache(templateCache);
+    }
+
+    public BaseUpsert upsert(RelationalPathBase<?> pathBase) {
+        return new BaseUpsert(connection, configuration, pathBase);
     }
 
     public BaseUpdate update(RelationalPathBase<?> pathBase) {
-        return new BaseUpdate(connection, configuration, pathBase);
+        return new BaseUpdate(connection, configuration, pathBase)
+                .templateCache(templateCache)
+                .queryExecutor(queryExecutor);
     }
 
     public BaseDelete delete(RelationalPathBase<?> pathBase) {
-        return new BaseDelete(connection, configuration, pathBase);
+        return new BaseDelete(connection, configuration, pathBase)
+                .templateCache(templateCache)
+                .queryExecutor(queryExecutor);
     }
 
 }
@@ -1,6 +1,7 @@
 package canuran.query;
 
 import com.mysema.commons.lang.Assert;
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.JoinExpression;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.group.GroupExpression;
@@ -12,6 +13,8 @@ import com.querydsl.core.types.dsl.SimpleExpression;
 import com.querydsl.core.util.BeanUtils;
 import com.querydsl.core.util.ReflectionUtils;
 import com.querydsl.sql.*;
+import canuran.query.support.LambdaBean;
+import canuran.query.support.RowsGrouper;
 
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
@@ -139,11 +142,107 @@ public class QueryUtils {
         }
     }
 
+    /**
+     * 获取Bean的属性值。
+     */
+    public static Object getBeanProperty(Object bean, String name) {
+        Assert.notNull(bean, "Bean param missing");
+        Method getter = ReflectionUtils.getGetterOrNull(bean.getClass(), name);
+        Assert.notNull(getter, "Property getter missing");
+        try {
+            return getter.invoke(bean);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 估算参数值在SQL数据包中占用的字节数，用于批量语句分块，字符串按UTF-8计算。
+     */
+    public static int estimateBytes(Object value) {
+        if (value == null) {
+            return 4;
+        } else if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            int bytes = 2;
+            for (int i = 0; i < chars.length(); i++) {
+                char c = chars.charAt(i);
+                bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+            }
+            return bytes;
+        } else if (value instanceof byte[]) {
+            // 客户端预编译时以十六进制字面量发送
+            return ((byte[]) value).length * 2 + 3;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return 20;
+        } else if (value instanceof Date || value instanceof java.time.temporal.Temporal) {
+            return 28;
+        }
+        return 64;
+    }
+
+    /**
+     * 创建游标分页条件，排序键大于（降序时小于）上一页最后一行的排序键。
+     * <p>
+     * 排序方向一致时使用行值比较：(k1, k2) > (?, ?)，方向不一致时展开为：
+     * k1 > ? or (k1 = ? and k2 < ?)。
+     */
+    public static Predicate keysetAfter(List<OrderSpecifier<?>> orderBys, Object[] lastKeys) {
+        Assert.notEmpty(orderBys, "Order by missing");
+        Assert.notNull(lastKeys, "Last keys missing");
+        Assert.isTrue(orderBys.size() == lastKeys.length, "Last keys size must equals order by size");
+        boolean sameOrder = true;
+        Expression<?>[] targets = new Expression[lastKeys.length];
+        Expression<?>[] values = new Expression[lastKeys.length];
+        for (int i = 0; i < lastKeys.length; i++) {
+            Assert.notNull(lastKeys[i], "Last key can not be null");
+            targets[i] = orderBys.get(i).getTarget();
+            values[i] = Expressions.constant(lastKeys[i]);
+            sameOrder = sameOrder && orderBys.get(i).getOrder() == orderBys.get(0).getOrder();
+        }
+        if (targets.length == 1) {
+            return Expressions.booleanOperation(keysetOperator(orderBys.get(0)), targets[0], values[0]);
+        }
+        if (sameOrder) {
+            String operator = orderBys.get(0).isAscending() ? " > " : " < ";
+            return Expressions.booleanTemplate("({0})" + operator + "({1})",
+                    Expressions.list(targets), Expressions.list(values));
+        }
+        BooleanBuilder after = new BooleanBuilder();
+        for (int i = 0; i < targets.length; i++) {
+            BooleanBuilder equalsBefore = new BooleanBuilder();
+            for (int j = 0; j < i; j++) {
+                equalsBefore.and(Expressions.booleanOperation(Ops.EQ, targets[j], values[j]));
+            }
+            after.or(equalsBefore.and(Expressions.booleanOperation(
+                    keysetOperator(orderBys.get(i)), targets[i], values[i])));
+        }
+        return after.getValue();
+    }
+
+    private static Operator keysetOperator(OrderSpecifier<?> orderBy) {
+        return orderBy.isAscending() ? Ops.GT : Ops.LT;
+    }
+
     /**
      * 使用与Bean属性匹配的Expression（包括实体查询对象）参数查询Bean。
+     * <p>
+     * 每次调用都会重新匹配属性，需要复用匹配结果时使用 FitBeanCache。
      */
     public static <T> QBean<T> fitBean(Class<? extends T> type, Expression... expressions) {
         Assert.notEmpty(expressions, "Expressions missing");
+        return Projections.bean(type, fitBindings(type, expressions));
+    }
+
+    /**
+     * 与 fitBean 相同，但使用 LambdaMetafactory 生成的构造器和Setter创建Bean。
+     */
+    public static <T> QBean<T> fitLambdaBean(Class<? extends T> type, Expression... expressions) {
+        Assert.notEmpty(expressions, "Expressions missing");
+        return new LambdaBean<>(type, fitBindings(type, expressions));
+    }
+
+    private static Map<String, Expression<?>> fitBindings(Class<?> type, Expression... expressions) {
         try {
             // 获取到Bean的所有属性
             BeanInfo beanInfo = Introspector.getBeanInfo(type);
@@ -170,7 +269,7 @@ public class QueryUtils {
                     }
                 }
             }
-            return Projections.bean(type, expressionMap);
+            return expressionMap;
         } catch (IntrospectionException e) {
             throw new IllegalStateException(e.getMessage(), e);
         }
@@ -243,7 +342,7 @@ public class QueryUtils {
     }
 
     /**
-     * 转换具有父子关系的关联查询的结果集为树形对象集合。
+     * 转换具有父子关系的关联查询的结果集为树形对象集合，保持查询结果的顺序，多层级时使用 RowsGrouper。
      * <p>
      * 例如把 List<Tuple> rows 转换为树形对象集合：
      * QueryUtils.rowsToTree(
@@ -267,26 +366,10 @@ public class QueryUtils {
                 || childrenGetter == null || childrenSetter == null) {
             throw new IllegalArgumentException("Arguments missing");
         }
-        // 取父对象并且根据父对象的Key去重
-        Map<Serializable, PARENT> parentMap = new HashMap<>();
-        for (Tuple row : rows) {
-            if (row != null) {
-                PARENT parent = row.get(qParent);
-                if (parent != null && parentKeyGetter.apply(parent) != null) {
-                    PARENT exists = parentMap.putIfAbsent(parentKeyGetter.apply(parent), parent);
-                    parent = exists == null ? parent : exists;
-                    // 取子对象并添加到父对象中
-                    CHILD child = row.get(qChild);
-                    if (child != null && childKeyGetter.apply(child) != null) {
-                        if (childrenGetter.apply(parent) == null) {
-                            childrenSetter.accept(parent, new ArrayList<>());
-                        }
-                        childrenGetter.apply(parent).add(child);
-                    }
-                }
-            }
-        }
-        return new ArrayList<>(parentMap.values());
+        // 一次遍历，父对象和子对象按Key去重并保持查询结果的顺序
+        return RowsGrouper.of(qParent, parentKeyGetter)
+                .children(qChild, childKeyGetter, childrenGetter, childrenSetter)
+                .group(rows);
     }
 
 }
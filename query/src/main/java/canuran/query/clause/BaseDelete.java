@@ -1,17 +1,26 @@
 package canuran.query.clause;
 
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.sql.Configuration;
-import com.querydsl.sql.RelationalPath;
-import com.querydsl.sql.RelationalPathBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.sql.*;
 import com.querydsl.sql.dml.AbstractSQLDeleteClause;
 import canuran.query.QueryUtils;
+import canuran.query.support.QueryExecutor;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -20,8 +29,13 @@ import java.util.function.Supplier;
  *
  * @author canuran
  */
+@SuppressWarnings("unchecked")
 public class BaseDelete extends AbstractSQLDeleteClause<BaseDelete> {
 
+    private SQLTemplateCache templateCache;
+    private QueryExecutor queryExecutor;
+    private int keysChunkSize = 1000;
+
     public BaseDelete() {
         super((Connection) null, QueryUtils.DEFAULT_CONFIGURATION, QueryUtils.EMPTY_PATH_BASE);
     }
@@ -34,6 +48,50 @@ public class BaseDelete extends AbstractSQLDeleteClause<BaseDelete> {
         super(connection, configuration, entity);
     }
 
+    /**
+     * 设置SQL模板缓存，结构相同的语句不再重复序列化，一般由查询工厂设置。
+     */
+    public BaseDelete templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    /**
+     * 设置异步执行器，一般由查询工厂设置。
+     */
+    public BaseDelete queryExecutor(QueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+        return this;
+    }
+
+    /**
+     * 在异步执行器中执行，不能在事务中使用，提交后不要再修改该语句。
+     */
+    public CompletableFuture<Long> executeAsync() {
+        return Objects.requireNonNull(queryExecutor, "QueryExecutor must nonnull").submit(this::execute);
+    }
+
+    /**
+     * 批量按主键删除时每条语句包含的主键数量，合并为 IN 条件，默认1000（Oracle的 IN 列表上限）。
+     * <p>
+     * 设置为1时每个主键一条语句，与批量执行单条删除相同。
+     */
+    public BaseDelete keysChunkSize(int keysChunkSize) {
+        this.keysChunkSize = keysChunkSize;
+        return this;
+    }
+
+    @Override
+    protected SQLSerializer createSerializer() {
+        // 批量执行时逐行序列化，小的整数等参数无法按对象标识对应，不使用模板缓存
+        if (templateCache == null || getBatchCount() > 0) {
+            return super.createSerializer();
+        }
+        SQLSerializer serializer = templateCache.createSerializer(configuration, true);
+        serializer.setUseLiterals(useLiterals);
+        return serializer;
+    }
+
     /**
      * 如果测试值为真则添加条件。
      */
@@ -84,14 +142,17 @@ public class BaseDelete extends AbstractSQLDeleteClause<BaseDelete> {
     }
 
     /**
-     * 批量根据主键删除实体。
+     * 批量根据主键删除实体，多个主键时参数为实体。
+     * <p>
+     * 主键按数量分块合并为 WHERE pk IN (...)，多个主键的表在支持的数据库中使用 (a, b) IN ((?, ?), ...)。
      */
     public long deleteByKeys(Collection<Object> keys) {
         if (keys != null && !keys.isEmpty()) {
-            for (Object key : keys) {
-                where(QueryUtils.baseKeyEquals((RelationalPathBase) entity, key)).addBatch();
+            List<? extends Path<?>> keyPaths = QueryUtils.getKeyPaths((RelationalPathBase) entity);
+            if (keyPaths.size() == 1) {
+                return deleteInChunks(keyPaths, new ArrayList<>(keys));
             }
-            return executeBatch();
+            return deleteBeans(keys);
         }
         return 0L;
     }
@@ -105,19 +166,83 @@ public class BaseDelete extends AbstractSQLDeleteClause<BaseDelete> {
     }
 
     /**
-     * 批量根据实体的主键删除实体。
+     * 批量根据实体的主键删除实体，与 deleteByKeys 一样分块合并为 IN 条件。
      */
     public long deleteBeans(Collection<?> beans) {
         if (beans != null && !beans.isEmpty()) {
             List<? extends Path<?>> keyPaths = QueryUtils.getKeyPaths((RelationalPathBase) entity);
+            List<Object> keys = new ArrayList<>(beans.size());
             for (Object bean : beans) {
-                where(QueryUtils.beanKeyEquals(keyPaths, bean)).addBatch();
+                if (keyPaths.size() == 1) {
+                    keys.add(QueryUtils.getBeanProperty(bean, keyPaths.get(0).getMetadata().getName()));
+                } else {
+                    Object[] values = new Object[keyPaths.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = QueryUtils.getBeanProperty(bean, keyPaths.get(i).getMetadata().getName());
+                    }
+                    keys.add(values);
+                }
             }
-            return executeBatch();
+            return deleteInChunks(keyPaths, keys);
         }
         return 0L;
     }
 
+    /**
+     * 分块添加删除批次，每块一条语句，大小相同的块SQL相同，作为一个JDBC批次执行。
+     *
+     * @param keys 单个主键时为主键值，多个主键时为主键值数组
+     */
+    private long deleteInChunks(List<? extends Path<?>> keyPaths, List<Object> keys) {
+        int chunkSize = Math.max(keysChunkSize, 1);
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<Object> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+            where(keysIn(keyPaths, chunk)).addBatch();
+        }
+        return executeBatch();
+    }
+
+    private Predicate keysIn(List<? extends Path<?>> keyPaths, List<Object> keys) {
+        if (keyPaths.size() == 1) {
+            SimpleExpression<Object> keyPath = (SimpleExpression<Object>) keyPaths.get(0);
+            return keys.size() == 1 ? keyPath.eq(keys.get(0)) : keyPath.in(keys);
+        }
+        if (keys.size() > 1 && isRowValueSupported()) {
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < keyPaths.size(); i++) {
+                row.append(i == 0 ? "{" : ", {").append(i).append('}');
+            }
+            String rowTemplate = row.append(')').toString();
+            List<Expression<?>> rows = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                rows.add(Expressions.template(Object.class, rowTemplate, (Object[]) key));
+            }
+            return Expressions.booleanOperation(Ops.IN, Expressions.list(keyPaths.toArray(new Path<?>[0])),
+                    ExpressionUtils.list(Object.class, rows));
+        }
+        // 不支持行值比较时使用 OR 连接的主键条件
+        List<Predicate> predicates = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            Object[] values = (Object[]) key;
+            BooleanBuilder predicate = new BooleanBuilder();
+            for (int i = 0; i < values.length; i++) {
+                predicate.and(((SimpleExpression<Object>) keyPaths.get(i)).eq(values[i]));
+            }
+            predicates.add(predicate.getValue());
+        }
+        return ExpressionUtils.anyOf(predicates);
+    }
+
+    /**
+     * 支持 (a, b) IN ((?, ?), ...) 行值比较的数据库。
+     */
+    private boolean isRowValueSupported() {
+        SQLTemplates templates = configuration.getTemplates();
+        return templates instanceof MySQLTemplates || templates instanceof H2Templates
+                || templates instanceof PostgreSQLTemplates || templates instanceof OracleTemplates
+                || templates instanceof DB2Templates || templates instanceof HSQLDBTemplates;
+    }
+
     public long executeBatch() {
         return batches.isEmpty() ? 0L : execute();
     }
@@ -1,21 +1,31 @@
 package canuran.query.clause;
 
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Path;
 import com.querydsl.sql.Configuration;
 import com.querydsl.sql.RelationalPath;
 import com.querydsl.sql.RelationalPathBase;
 import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLSerializer;
 import com.querydsl.sql.dml.AbstractSQLInsertClause;
 import com.querydsl.sql.dml.DefaultMapper;
 import com.querydsl.sql.dml.Mapper;
+import com.querydsl.sql.dml.SQLInsertBatch;
+import com.querydsl.sql.types.Null;
 import canuran.query.QueryUtils;
+import canuran.query.support.BulkResult;
+import canuran.query.support.QueryExecutor;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import java.sql.Connection;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 增强的插入语句。
@@ -25,6 +35,13 @@ import java.util.List;
 @SuppressWarnings("unchecked")
 public class BaseInsert extends AbstractSQLInsertClause<BaseInsert> {
 
+    private SQLTemplateCache templateCache;
+    private QueryExecutor queryExecutor;
+    private Provider<Connection> connectionProvider;
+    private int bulkMaxBytes = 3 * 1024 * 1024;
+    private int bulkMaxParameters = 65535;
+    private boolean bulkPipeline = false;
+
     public BaseInsert() {
         super((Connection) null, QueryUtils.DEFAULT_CONFIGURATION, QueryUtils.EMPTY_PATH_BASE);
     }
@@ -39,10 +56,71 @@ public class BaseInsert extends AbstractSQLInsertClause<BaseInsert> {
 
     public BaseInsert(Provider<Connection> connection, Configuration configuration, RelationalPath<?> entity, SQLQuery<?> subQuery) {
         super(connection, configuration, entity, subQuery);
+        this.connectionProvider = connection;
     }
 
     public BaseInsert(Provider<Connection> connection, Configuration configuration, RelationalPath<?> entity) {
         super(connection, configuration, entity);
+        this.connectionProvider = connection;
+    }
+
+    /**
+     * 设置SQL模板缓存，结构相同的语句不再重复序列化，一般由查询工厂设置。
+     */
+    public BaseInsert templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    /**
+     * 设置异步执行器，一般由查询工厂设置。
+     */
+    public BaseInsert queryExecutor(QueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+        return this;
+    }
+
+    /**
+     * 在异步执行器中执行，不能在事务中使用，提交后不要再修改该语句。
+     */
+    public CompletableFuture<Long> executeAsync() {
+        return Objects.requireNonNull(queryExecutor, "QueryExecutor must nonnull").submit(this::execute);
+    }
+
+    /**
+     * 设置分块批量保存时每条语句的最大估算字节数，应小于MySQL的 max_allowed_packet，
+     * 默认3MB，低于MySQL 5.7默认的4MB，为转义等估算误差留出余量。
+     */
+    public BaseInsert bulkMaxBytes(int bulkMaxBytes) {
+        this.bulkMaxBytes = bulkMaxBytes;
+        return this;
+    }
+
+    /**
+     * 设置分块批量保存时每条语句的最大参数个数，默认为MySQL预编译语句的上限65535。
+     */
+    public BaseInsert bulkMaxParameters(int bulkMaxParameters) {
+        this.bulkMaxParameters = bulkMaxParameters;
+        return this;
+    }
+
+    /**
+     * 设置分块批量保存时是否在同一个连接上作为一个JDBC批次连续发送所有分块，不再逐块等待连接获取和释放。
+     */
+    public BaseInsert bulkPipeline(boolean bulkPipeline) {
+        this.bulkPipeline = bulkPipeline;
+        return this;
+    }
+
+    @Override
+    protected SQLSerializer createSerializer() {
+        // 批量执行时逐行序列化，小的整数等参数无法按对象标识对应，不使用模板缓存
+        if (templateCache == null || getBatchCount() > 0) {
+            return super.createSerializer();
+        }
+        SQLSerializer serializer = templateCache.createSerializer(configuration, true);
+        serializer.setUseLiterals(useLiterals);
+        return serializer;
     }
 
     /**
@@ -127,6 +205,147 @@ public class BaseInsert extends AbstractSQLInsertClause<BaseInsert> {
         return 0L;
     }
 
+    /**
+     * 分块批量保存实体，每块为一条多行INSERT，按估算的数据包大小和参数个数切分，返回每块的统计。
+     * <p>
+     * 忽略空值时各实体的字段可能不同，字段相同的实体才会合并到同一块。
+     */
+    public BulkResult insertBulk(Collection<?> beans) {
+        return insertBulk(beans, DefaultMapper.DEFAULT);
+    }
+
+    /**
+     * 分块批量保存实体，包括空值字段，每块为一条多行INSERT，返回每块的统计。
+     */
+    public BulkResult insertBulkWithNulls(Collection<?> beans) {
+        return insertBulk(beans, DefaultMapper.WITH_NULL_BINDINGS);
+    }
+
+    private BulkResult insertBulk(Collection<?> beans, Mapper<Object> mapper) {
+        BulkResult result = new BulkResult();
+        if (beans == null || beans.isEmpty()) {
+            return result;
+        }
+        long start = System.currentTimeMillis();
+        Map<Set<Path<?>>, List<Map<Path<?>, Object>>> groups = new LinkedHashMap<>();
+        for (Object bean : beans) {
+            Map<Path<?>, Object> values = mapper.createMap(entity, bean);
+            groups.computeIfAbsent(values.keySet(), paths -> new ArrayList<>()).add(values);
+        }
+        List<List<SQLInsertBatch>> chunkBatches = new ArrayList<>();
+        List<BulkResult.Chunk> chunks = new ArrayList<>();
+        for (List<Map<Path<?>, Object>> rows : groups.values()) {
+            splitChunks(rows, chunkBatches, chunks);
+        }
+        if (bulkPipeline) {
+            executePipeline(chunkBatches, chunks);
+        } else {
+            for (int i = 0; i < chunks.size(); i++) {
+                long chunkStart = System.nanoTime();
+                BaseInsert insert = connectionProvider == null
+                        ? new BaseInsert(connection(), configuration, entity)
+                        : new BaseInsert(connectionProvider, configuration, entity);
+                insert.templateCache(templateCache).batchToBulk();
+                for (QueryFlag flag : metadata.getFlags()) {
+                    insert.addFlag(flag.getPosition(), flag.getFlag());
+                }
+                insert.batches.addAll(chunkBatches.get(i));
+                chunks.get(i).setAffected(insert.execute());
+                chunks.get(i).setElapsedNanos(System.nanoTime() - chunkStart);
+            }
+        }
+        chunks.forEach(result::addChunk);
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 按估算的字节数和参数个数切分字段相同的行，单行超出限制时独占一块。
+     */
+    private void splitChunks(List<Map<Path<?>, Object>> rows,
+                             List<List<SQLInsertBatch>> chunkBatches, List<BulkResult.Chunk> chunks) {
+        List<Path<?>> columns = new ArrayList<>(rows.get(0).keySet());
+        int headerBytes = 32 + entity.getTableName().length();
+        for (Path<?> column : columns) {
+            headerBytes += column.getMetadata().getName().length() + 4;
+        }
+        List<SQLInsertBatch> batches = new ArrayList<>();
+        long bytes = headerBytes;
+        for (Map<Path<?>, Object> row : rows) {
+            List<Expression<?>> values = new ArrayList<>(columns.size());
+            int rowBytes = 4;
+            for (Path<?> column : columns) {
+                Object value = row.get(column);
+                rowBytes += QueryUtils.estimateBytes(value) + 2;
+                values.add(value == null ? Null.CONSTANT : ConstantImpl.create(value));
+            }
+            if (!batches.isEmpty() && (bytes + rowBytes > bulkMaxBytes
+                    || (batches.size() + 1) * columns.size() > bulkMaxParameters)) {
+                chunkBatches.add(batches);
+                chunks.add(new BulkResult.Chunk(batches.size(), batches.size() * columns.size(), bytes));
+                batches = new ArrayList<>();
+                bytes = headerBytes;
+            }
+            batches.add(new SQLInsertBatch(columns, values, null));
+            bytes += rowBytes;
+        }
+        chunkBatches.add(batches);
+        chunks.add(new BulkResult.Chunk(batches.size(), batches.size() * columns.size(), bytes));
+    }
+
+    /**
+     * 在当前语句的连接上把所有分块作为一个JDBC批次执行，SQL相同的分块共用预编译语句。
+     */
+    private void executePipeline(List<List<SQLInsertBatch>> chunkBatches, List<BulkResult.Chunk> chunks) {
+        Connection conn = connection();
+        context = startContext(conn, metadata, entity);
+        Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        Map<String, List<BulkResult.Chunk>> statementChunks = new HashMap<>();
+        try {
+            for (int i = 0; i < chunkBatches.size(); i++) {
+                List<SQLInsertBatch> batches = chunkBatches.get(i);
+                listeners.notifyInserts(entity, metadata, batches);
+                listeners.preRender(context);
+                SQLSerializer serializer = createSerializer();
+                serializer.serializeInsert(metadata, entity, batches);
+                context.addSQL(createBindings(metadata, serializer));
+                listeners.rendered(context);
+
+                queryString = serializer.toString();
+                constants = serializer.getConstants();
+                PreparedStatement stmt = statements.get(queryString);
+                if (stmt == null) {
+                    listeners.prePrepare(context);
+                    stmt = conn.prepareStatement(queryString);
+                    statements.put(queryString, stmt);
+                    context.addPreparedStatement(stmt);
+                    listeners.prepared(context);
+                }
+                setParameters(stmt, constants, serializer.getConstantPaths(), metadata.getParams());
+                stmt.addBatch();
+                statementChunks.computeIfAbsent(queryString, sql -> new ArrayList<>()).add(chunks.get(i));
+            }
+            listeners.preExecute(context);
+            for (Map.Entry<String, PreparedStatement> entry : statements.entrySet()) {
+                int[] counts = entry.getValue().executeBatch();
+                List<BulkResult.Chunk> executed = statementChunks.get(entry.getKey());
+                for (int i = 0; i < counts.length && i < executed.size(); i++) {
+                    // 驱动不返回影响行数时按提交的行数计算
+                    executed.get(i).setAffected(counts[i] == Statement.SUCCESS_NO_INFO
+                            ? executed.get(i).getRows() : counts[i]);
+                }
+            }
+            listeners.executed(context);
+        } catch (SQLException e) {
+            onException(context, e);
+            throw configuration.translate(queryString, constants, e);
+        } finally {
+            close(statements.values());
+            reset();
+            endContext(context);
+        }
+    }
+
     /**
      * 保存实体并填充实体主键。
      */
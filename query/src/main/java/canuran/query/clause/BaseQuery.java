@@ -1,23 +1,53 @@
 package canuran.query.clause;
 
 import com.mysema.commons.lang.Assert;
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.*;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.AbstractSQLQuery;
 import com.querydsl.sql.Configuration;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.RelationalPath;
 import com.querydsl.sql.RelationalPathBase;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLListenerContext;
+import com.querydsl.sql.SQLSerializer;
+import com.querydsl.sql.StatementOptions;
 import canuran.query.QueryUtils;
+import canuran.query.paging.CountStrategy;
+import canuran.query.paging.KeysetPaging;
 import canuran.query.paging.Page;
 import canuran.query.paging.Paging;
+import canuran.query.paging.Slice;
+import canuran.query.support.CountCache;
+import canuran.query.support.EntityMapper;
+import canuran.query.support.EntityMapperCache;
+import canuran.query.support.FitBeanCache;
+import canuran.query.support.QueryCache;
+import canuran.query.support.QueryExecutor;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import java.sql.Connection;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Objects;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 增强的查询类。
@@ -29,6 +59,22 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
 
     private boolean pageCountRows = true;
     private boolean pageFetchRows = true;
+    private boolean pageWindowCount = false;
+    private boolean pageParallel = false;
+    private boolean windowFunctions = false;
+    private CountStrategy pageCountStrategy = CountStrategy.EXACT;
+    private long pageCountCap = 1000L;
+    private CountCache countCache;
+    private SQLTemplateCache templateCache;
+    private Object[] keysetLastKeys;
+    private Integer streamFetchSize;
+    private boolean lambdaBeans = false;
+    private FitBeanCache fitBeanCache;
+    private boolean entityMappers = false;
+    private EntityMapperCache entityMapperCache;
+    private QueryCache queryCache;
+    private long cacheTtlMillis = 0L;
+    private QueryExecutor queryExecutor;
     private Provider<Connection> connectionProvider;
 
     public BaseQuery() {
@@ -48,16 +94,58 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
         super(conn, configuration, metadata);
     }
 
+    public BaseQuery(Provider<Connection> connectionProvider, Configuration configuration, QueryMetadata metadata) {
+        super(connectionProvider, configuration, metadata);
+        this.connectionProvider = connectionProvider;
+    }
+
     @Override
     public BaseQuery<E> clone(Connection conn) {
-        BaseQuery<E> query = new BaseQuery<>(conn, getConfiguration(), getMetadata().clone());
+        return copySettings(new BaseQuery<>(conn, getConfiguration(), getMetadata().clone()));
+    }
+
+    /**
+     * 复制查询，执行时才从连接提供者获取连接。
+     */
+    private BaseQuery<E> clone(Provider<Connection> provider) {
+        return copySettings(new BaseQuery<>(provider, getConfiguration(), getMetadata().clone()));
+    }
+
+    private BaseQuery<E> copySettings(BaseQuery<E> query) {
         query.connectionProvider = connectionProvider;
         query.pageCountRows = pageCountRows;
         query.pageFetchRows = pageFetchRows;
+        query.pageWindowCount = pageWindowCount;
+        query.pageParallel = pageParallel;
+        query.windowFunctions = windowFunctions;
+        query.pageCountStrategy = pageCountStrategy;
+        query.pageCountCap = pageCountCap;
+        query.countCache = countCache;
+        query.templateCache = templateCache;
+        query.keysetLastKeys = keysetLastKeys;
+        query.streamFetchSize = streamFetchSize;
+        query.lambdaBeans = lambdaBeans;
+        query.fitBeanCache = fitBeanCache;
+        query.entityMappers = entityMappers;
+        query.entityMapperCache = entityMapperCache;
+        query.queryCache = queryCache;
+        query.cacheTtlMillis = cacheTtlMillis;
+        query.queryExecutor = queryExecutor;
         query.clone(this);
         return query;
     }
 
+    @Override
+    protected SQLSerializer createSerializer() {
+        // UNION查询的结构由子查询决定，不使用缓存
+        if (templateCache == null || union != null) {
+            return super.createSerializer();
+        }
+        SQLSerializer serializer = templateCache.createSerializer(getConfiguration(), false);
+        serializer.setUseLiterals(useLiterals);
+        return serializer;
+    }
+
     @Override
     public <T> BaseQuery<T> select(Expression<T> expression) {
         queryMixin.setProjection(expression);
@@ -196,11 +284,26 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
         if (paging != null) {
             this.pageCountRows = paging.isCountRows();
             this.pageFetchRows = paging.isFetchRows();
-            offset(paging.getOffset()).limit(paging.getLimit());
+            pageCountStrategy(paging.getCountStrategy());
+            this.pageCountCap = paging.getCountCap();
+            if (paging instanceof KeysetPaging) {
+                this.keysetLastKeys = ((KeysetPaging) paging).getLastKeys();
+                limit(paging.getLimit());
+            } else {
+                offset(paging.getOffset()).limit(paging.getLimit());
+            }
         }
         return this;
     }
 
+    /**
+     * 设置游标分页时上一页最后一行的排序键，与排序字段一一对应。
+     */
+    public BaseQuery<E> keysetAfter(Object... lastKeys) {
+        this.keysetLastKeys = lastKeys;
+        return this;
+    }
+
     /**
      * 设置分页时是否统计总数，默认统计总数。
      */
@@ -221,6 +324,81 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
         return this;
     }
 
+    /**
+     * 设置分页时统计总数的策略，默认精确统计。
+     */
+    public BaseQuery<E> pageCountStrategy(CountStrategy pageCountStrategy) {
+        if (pageCountStrategy != null) {
+            this.pageCountStrategy = pageCountStrategy;
+        }
+        return this;
+    }
+
+    /**
+     * 设置分页使用CAPPED策略时最多统计的行数。
+     */
+    public BaseQuery<E> pageCountCap(Number pageCountCap) {
+        if (pageCountCap != null) {
+            this.pageCountCap = pageCountCap.longValue();
+        }
+        return this;
+    }
+
+    /**
+     * 设置分页使用CACHED策略时的总数缓存，一般由查询工厂设置。
+     */
+    public BaseQuery<E> countCache(CountCache countCache) {
+        this.countCache = countCache;
+        return this;
+    }
+
+    /**
+     * 设置SQL模板缓存，结构相同的查询不再重复序列化，一般由查询工厂设置。
+     */
+    public BaseQuery<E> templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    /**
+     * 设置分页时是否使用窗口函数在一次查询中同时统计总数，默认不使用。
+     * <p>
+     * 数据库不支持窗口函数或者是DISTINCT查询时仍然分两次查询。
+     */
+    public BaseQuery<E> pageWindowCount(Boolean pageWindowCount) {
+        if (pageWindowCount != null) {
+            this.pageWindowCount = pageWindowCount;
+        }
+        return this;
+    }
+
+    /**
+     * 设置分页时是否在另一个连接上与统计总数同时查询数据，默认不并行。
+     * <p>
+     * 需要设置异步执行器，在事务中仍然依次查询，总数为0或超出最后一页时取消数据查询。
+     */
+    public BaseQuery<E> pageParallel(boolean pageParallel) {
+        this.pageParallel = pageParallel;
+        return this;
+    }
+
+    /**
+     * 设置数据库是否支持窗口函数，一般由查询工厂根据数据库方言设置。
+     */
+    public BaseQuery<E> windowFunctions(boolean windowFunctions) {
+        this.windowFunctions = windowFunctions;
+        return this;
+    }
+
+    /**
+     * 设置流式查询每次读取的行数，MySQL默认为 Integer.MIN_VALUE 逐行读取，
+     * 连接开启 useCursorFetch=true 时可设置为正数按批读取，其他数据库默认为1000。
+     */
+    public BaseQuery<E> streamFetchSize(Integer streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+        return this;
+    }
+
     /**
      * 设置查询的数量。
      */
@@ -251,14 +429,186 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
         return this;
     }
 
+    /**
+     * 设置 fitBean 是否使用 LambdaMetafactory 生成的Setter，一般由查询工厂设置。
+     */
+    public BaseQuery<E> lambdaBeans(boolean lambdaBeans) {
+        this.lambdaBeans = lambdaBeans;
+        return this;
+    }
+
+    /**
+     * 设置 fitBean 匹配结果缓存，一般由查询工厂设置，为空时每次重新匹配。
+     */
+    public BaseQuery<E> fitBeanCache(FitBeanCache fitBeanCache) {
+        this.fitBeanCache = fitBeanCache;
+        return this;
+    }
+
+    /**
+     * 设置查询实体时是否使用预先绑定的映射器直接从结果集填充，一般由查询工厂设置。
+     */
+    public BaseQuery<E> entityMappers(boolean entityMappers) {
+        this.entityMappers = entityMappers;
+        return this;
+    }
+
+    /**
+     * 设置实体映射器缓存，一般由查询工厂设置，为空时每次重新创建映射器。
+     */
+    public BaseQuery<E> entityMapperCache(EntityMapperCache entityMapperCache) {
+        this.entityMapperCache = entityMapperCache;
+        return this;
+    }
+
+    /**
+     * 设置查询结果缓存，一般由查询工厂设置。
+     */
+    public BaseQuery<E> queryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+        return this;
+    }
+
+    /**
+     * 在有效期内缓存查询结果（fetch、fetchOne、fetchCount及分页），读取的表有写入时自动失效，
+     * 适用于读多写少的表，没有设置查询缓存或在事务中时不缓存。
+     */
+    public BaseQuery<E> cached(Duration ttl) {
+        this.cacheTtlMillis = ttl == null ? 0L : ttl.toMillis();
+        return this;
+    }
+
+    /**
+     * 设置异步执行器，一般由查询工厂设置。
+     */
+    public BaseQuery<E> queryExecutor(QueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+        return this;
+    }
+
     /**
      * 查询字段自动适配指定Bean的属性。
      */
     public <T> BaseQuery<T> fitBean(Class<T> type) {
-        queryMixin.setProjection(QueryUtils.fitBean(type, getMetadata().getProjection()));
+        Expression<?> projection = getMetadata().getProjection();
+        if (fitBeanCache != null) {
+            queryMixin.setProjection(fitBeanCache.get(type, lambdaBeans, projection));
+        } else {
+            queryMixin.setProjection(lambdaBeans ? QueryUtils.fitLambdaBean(type, projection)
+                    : QueryUtils.fitBean(type, projection));
+        }
         return (BaseQuery<T>) this;
     }
 
+    /**
+     * 开启缓存时优先从缓存获取，返回的列表可以修改，但其中的实体是共享的。
+     */
+    @Override
+    public List<E> fetch() {
+        if (!isCached()) {
+            return fetchRows();
+        }
+        return new ArrayList<>((List<E>) queryCache.get(cacheKey(null),
+                QueryCache.getTables(getMetadata()), cacheTtlMillis, this::fetchRows));
+    }
+
+    /**
+     * 开启缓存时从缓存的列表中获取唯一结果。
+     */
+    @Override
+    public E fetchOne() {
+        if (!isCached()) {
+            return super.fetchOne();
+        }
+        QueryModifiers qm = getMetadata().getModifiers();
+        if (qm == null || qm.getLimit() == null) {
+            limit(2L);
+        }
+        List<E> rows = fetch();
+        if (rows.size() > 1) {
+            throw new NonUniqueResultException();
+        }
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * 开启缓存时优先从缓存获取总数。
+     */
+    @Override
+    public long fetchCount() {
+        if (!isCached()) {
+            return super.fetchCount();
+        }
+        return (Long) queryCache.get(cacheKey("count"), QueryCache.getTables(getMetadata()),
+                cacheTtlMillis, super::fetchCount);
+    }
+
+    private boolean isCached() {
+        return queryCache != null && cacheTtlMillis > 0L;
+    }
+
+    /**
+     * 缓存键包括投影，SQL相同但投影的Bean不同时不能共用。
+     */
+    private Object cacheKey(String kind) {
+        SQLBindings bindings = getSQL();
+        return Arrays.asList(kind, bindings.getSQL(), bindings.getNullFriendlyBindings(),
+                getMetadata().getProjection());
+    }
+
+    /**
+     * 查询实体（如 selectFrom）且开启映射器时直接从结果集填充实体，否则与原方法相同。
+     */
+    private List<E> fetchRows() {
+        RelationalPath<E> entity = entityMappers ? getEntity() : null;
+        EntityMapper<E> mapper = entity == null ? null
+                : entityMapperCache == null ? EntityMapper.of(entity) : entityMapperCache.get(entity);
+        if (mapper == null) {
+            return super.fetch();
+        }
+        Configuration configuration = getConfiguration();
+        try (ResultSet resultSet = getResults()) {
+            List<E> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(mapper.map(resultSet, configuration));
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw configuration.translate(e);
+        }
+    }
+
+    /**
+     * 查询实体时投影已被转换为实体的 getProjection()，按对象标识找回FROM或JOIN中的实体，不是实体时返回空。
+     */
+    private RelationalPath<E> getEntity() {
+        Expression<?> projection = getMetadata().getProjection();
+        if (projection == null) {
+            return null;
+        }
+        for (JoinExpression join : getMetadata().getJoins()) {
+            Expression<?> target = join.getTarget();
+            if (target instanceof RelationalPath && ((RelationalPath<?>) target).getProjection() == projection) {
+                return (RelationalPath<E>) target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在异步执行器中查询，不能在事务中使用，提交后不要再修改该查询。
+     */
+    public CompletableFuture<List<E>> fetchAsync() {
+        return Objects.requireNonNull(queryExecutor, "QueryExecutor must nonnull").submit(this::fetch);
+    }
+
+    /**
+     * 在异步执行器中获取分页结果，不能在事务中使用，提交后不要再修改该查询。
+     */
+    public CompletableFuture<Page<E>> fetchPageAsync() {
+        return Objects.requireNonNull(queryExecutor, "QueryExecutor must nonnull").submit(this::fetchPage);
+    }
+
     /**
      * 根据主键获取实体。
      */
@@ -271,21 +621,304 @@ public class BaseQuery<E> extends AbstractSQLQuery<E, BaseQuery<E>> {
      * 获取分页结果。
      */
     public Page<E> fetchPage() {
+        if (pageCountRows && pageFetchRows && pageWindowCount && windowFunctions
+                && pageCountStrategy == CountStrategy.EXACT && !getMetadata().isDistinct()) {
+            return fetchWindowPage();
+        }
+        if (pageCountRows && pageFetchRows && pageParallel && connectionProvider != null
+                && queryExecutor != null && queryExecutor.isSubmittable() && !queryExecutor.isExecutorThread()) {
+            return fetchParallelPage();
+        }
         if (pageCountRows) {
-            long total = fetchCount();
+            Page<E> page = fetchPageCount();
             if (pageFetchRows) {
                 QueryModifiers qm = getMetadata().getModifiers();
                 long offset = qm == null || qm.getOffset() == null ? 0L : qm.getOffset();
-                if (total > 0L && total > offset) {
+                // 非精确的总数不能用来判断是否还有数据
+                if (page.getCountStrategy() != CountStrategy.EXACT
+                        || page.getTotal() > 0L && page.getTotal() > offset) {
                     Connection conn = Objects.requireNonNull(connectionProvider,
                             "ConnectionProvider must nonnull").get();
-                    return new Page<>(total, clone(conn).fetch());
+                    page.setRows(clone(conn).fetch());
                 }
             }
-            return new Page<>(total, Collections.emptyList());
+            return page;
         } else {
             return pageFetchRows ? new Page<>(fetch()) : Page.emptyPage();
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 在执行器中查询数据的同时统计总数，总数确定没有数据时取消数据查询，
+     * 数据查询还在排队时取回到当前线程执行，已在执行器线程中时不并行。
+     */
+    private Page<E> fetchParallelPage() {
+        BaseQuery<E> rowsQuery = clone(connectionProvider);
+        StatementCanceller canceller = new StatementCanceller();
+        rowsQuery.addListener(canceller);
+        CompletableFuture<List<E>> rowsFuture = queryExecutor.submit(rowsQuery::fetch);
+        Page<E> page;
+        try {
+            page = fetchPageCount();
+        } catch (RuntimeException e) {
+            rowsFuture.cancel(false);
+            canceller.cancel();
+            throw e;
+        }
+        QueryModifiers qm = getMetadata().getModifiers();
+        long offset = qm == null || qm.getOffset() == null ? 0L : qm.getOffset();
+        if (page.getCountStrategy() == CountStrategy.EXACT
+                && (page.getTotal() <= 0L || page.getTotal() <= offset)) {
+            rowsFuture.cancel(false);
+            canceller.cancel();
+            return page;
+        }
+        try {
+            page.setRows(queryExecutor.join(rowsFuture));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return page;
+    }
+
+    /**
+     * 使用 COUNT(*) OVER() 在一次查询中获取分页数据和总数。
+     */
+    private Page<E> fetchWindowPage() {
+        Expression<?> projection = getMetadata().getProjection();
+        Expression<Long> countOver = SQLExpressions.count().over();
+        List<Tuple> tuples;
+        try {
+            queryMixin.setProjection(projection, countOver);
+            tuples = ((BaseQuery<Tuple>) this).fetch();
+        } finally {
+            queryMixin.setProjection(projection);
+        }
+        Page<E> page = new Page<>();
+        page.setCountStrategy(CountStrategy.EXACT);
+        if (tuples.isEmpty()) {
+            // 超出最后一页时没有行可以带回总数，需要单独统计
+            QueryModifiers qm = getMetadata().getModifiers();
+            boolean hasOffset = qm != null && qm.getOffset() != null && qm.getOffset() > 0L;
+            page.setTotal(hasOffset ? fetchCount() : 0L);
+            return page;
+        }
+        List<E> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add((E) tuple.get(0, Object.class));
+        }
+        Long total = tuples.get(0).get(countOver);
+        page.setTotal(total == null ? 0L : total);
+        page.setRows(rows);
+        return page;
+    }
+
+    /**
+     * 根据统计策略获取只有总数的分页。
+     */
+    private Page<E> fetchPageCount() {
+        Page<E> page = new Page<>();
+        page.setCountStrategy(CountStrategy.EXACT);
+        if (pageCountStrategy == CountStrategy.CACHED && countCache != null) {
+            SQLBindings bindings = countBaseQuery(false).getSQL();
+            String key = bindings.getSQL() + '\n' + bindings.getNullFriendlyBindings();
+            page.setTotal(countCache.get(key, this::fetchCount));
+            page.setCountStrategy(CountStrategy.CACHED);
+        } else if (pageCountStrategy == CountStrategy.ESTIMATED
+                && getConfiguration().getTemplates() instanceof MySQLTemplates) {
+            long estimated = fetchEstimatedCount();
+            if (estimated >= 0L) {
+                page.setTotal(estimated);
+                page.setCountStrategy(CountStrategy.ESTIMATED);
+            } else {
+                page.setTotal(fetchCount());
+            }
+        } else if (pageCountStrategy == CountStrategy.CAPPED) {
+            // 上限至少要包含当前页
+            QueryModifiers qm = getMetadata().getModifiers();
+            long cap = Math.max(pageCountCap, qm == null ? 0L : qm.getLimit() == null ? 0L
+                    : qm.getLimit() + (qm.getOffset() == null ? 0L : qm.getOffset()));
+            BaseQuery<?> query = countBaseQuery(true);
+            if (!query.getMetadata().isDistinct()) {
+                query.select(Expressions.ONE);
+            }
+            long count = query.limit(cap + 1L).fetch().size();
+            page.setTotal(Math.min(count, cap));
+            page.setCapped(count > cap);
+            page.setCountStrategy(CountStrategy.CAPPED);
+        } else {
+            page.setTotal(fetchCount());
+        }
+        return page;
+    }
+
+    /**
+     * 使用MySQL的执行计划估算总行数，失败时返回-1。
+     */
+    private long fetchEstimatedCount() {
+        BaseQuery<E> query = countBaseQuery(true);
+        query.addFlag(QueryFlag.Position.START, "EXPLAIN ");
+        try (ResultSet resultSet = query.getResults()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int rowsIndex = 0;
+            int filteredIndex = 0;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if ("rows".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    rowsIndex = i;
+                } else if ("filtered".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    filteredIndex = i;
+                }
+            }
+            if (rowsIndex == 0) {
+                return -1L;
+            }
+            // 关联查询时取各表估算行数的乘积
+            double estimated = 1D;
+            while (resultSet.next()) {
+                double filtered = filteredIndex == 0 ? 100D : resultSet.getDouble(filteredIndex);
+                estimated *= Math.max(resultSet.getLong(rowsIndex), 0L) * filtered / 100D;
+            }
+            return Math.round(estimated);
+        } catch (SQLException | RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 去掉排序和分页的查询，用于统计总数。
+     */
+    private BaseQuery<E> countBaseQuery(boolean connected) {
+        BaseQuery<E> query;
+        if (!connected) {
+            query = new BaseQuery<>((Connection) null, getConfiguration(), getMetadata().clone());
+            query.templateCache = templateCache;
+        } else {
+            // 使用新连接，避免当前查询的连接被提前释放
+            query = connectionProvider == null ? clone() : clone(connectionProvider.get());
+        }
+        query.getMetadata().clearOrderBy();
+        query.getMetadata().setModifiers(QueryModifiers.EMPTY);
+        return query;
+    }
+
+    /**
+     * 流式获取结果，逐行映射，内存占用与结果集大小无关。
+     * <p>
+     * 流关闭时才释放结果集和连接，请使用 try-with-resources，读取期间不能在同一连接上执行其他语句。
+     */
+    public Stream<E> stream() {
+        CloseableIterator<E> iterator = iterateStream();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * 流式遍历结果，遍历完成或出现异常时释放结果集和连接，返回遍历的行数。
+     */
+    public long forEachRow(Consumer<? super E> consumer) {
+        long rows = 0L;
+        try (CloseableIterator<E> iterator = iterateStream()) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private CloseableIterator<E> iterateStream() {
+        Integer fetchSize = streamFetchSize;
+        if (fetchSize == null) {
+            fetchSize = getConfiguration().getTemplates() instanceof MySQLTemplates ? Integer.MIN_VALUE : 1000;
+        }
+        setStatementOptions(StatementOptions.builder().setFetchSize(fetchSize).build());
+        return iterate();
+    }
+
+    /**
+     * 获取游标分页结果，使用排序键定位而不是Offset，任意深度的分页开销相同。
+     * <p>
+     * 必须有排序且排序字段能唯一确定一行（通常以主键结尾），
+     * 会多查询一行用来判断是否有下一页，并修改当前查询的条件和数量限制。
+     */
+    public Slice<E> fetchSlice() {
+        List<OrderSpecifier<?>> orderBys = getMetadata().getOrderBy();
+        Assert.notEmpty(orderBys, "Keyset paging must order by");
+        if (keysetLastKeys != null && keysetLastKeys.length > 0) {
+            where(QueryUtils.keysetAfter(orderBys, keysetLastKeys));
+        }
+        QueryModifiers qm = getMetadata().getModifiers();
+        Long limit = qm == null ? null : qm.getLimit();
+        if (limit == null) {
+            List<E> rows = fetch();
+            return new Slice<>(rows, false, null);
+        }
+        getMetadata().setModifiers(new QueryModifiers(limit + 1L, qm.getOffset()));
+        List<E> rows = fetch();
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit.intValue()));
+            return new Slice<>(rows, true, getRowKeys(rows.get(rows.size() - 1), orderBys));
+        }
+        return new Slice<>(rows, false, null);
+    }
+
+    /**
+     * 从行中取出排序键，支持排序字段本身、Tuple中的字段以及Bean或Tuple中实体的属性。
+     */
+    private Object[] getRowKeys(E row, List<OrderSpecifier<?>> orderBys) {
+        Object[] keys = new Object[orderBys.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Expression<?> target = orderBys.get(i).getTarget();
+            if (target.equals(getMetadata().getProjection())) {
+                keys[i] = row;
+            } else if (row instanceof Tuple) {
+                Tuple tuple = (Tuple) row;
+                keys[i] = tuple.get(target);
+                if (keys[i] == null && target instanceof Path) {
+                    Path<?> path = (Path<?>) target;
+                    Object entity = tuple.get(path.getRoot());
+                    keys[i] = entity == null ? null
+                            : QueryUtils.getBeanProperty(entity, path.getMetadata().getName());
+                }
+            } else if (target instanceof Path) {
+                keys[i] = QueryUtils.getBeanProperty(row, ((Path<?>) target).getMetadata().getName());
+            }
+            Assert.notNull(keys[i], "Can not get keyset key " + target);
+        }
+        return keys;
+    }
+
+    /**
+     * 记录查询的预编译语句，取消时中止正在执行的语句。
+     */
+    private static class StatementCanceller extends SQLBaseListener {
+
+        private volatile boolean cancelled;
+        private volatile Statement statement;
+
+        @Override
+        public void prepared(SQLListenerContext context) {
+            statement = context.getPreparedStatement();
+            if (cancelled) {
+                cancel();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Statement current = statement;
+            if (current != null) {
+                try {
+                    current.cancel();
+                } catch (SQLException ignored) {
+                    // 语句已经结束
+                }
+            }
+        }
+
+    }
+
+}
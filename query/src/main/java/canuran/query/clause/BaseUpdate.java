@@ -1,19 +1,28 @@
 package canuran.query.clause;
 
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.SimpleExpression;
 import com.querydsl.sql.Configuration;
 import com.querydsl.sql.RelationalPath;
 import com.querydsl.sql.RelationalPathBase;
+import com.querydsl.sql.SQLSerializer;
 import com.querydsl.sql.dml.AbstractSQLUpdateClause;
 import com.querydsl.sql.dml.DefaultMapper;
 import com.querydsl.sql.dml.Mapper;
+import com.querydsl.sql.types.Null;
 import canuran.query.QueryUtils;
+import canuran.query.support.QueryExecutor;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import java.sql.Connection;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -22,8 +31,13 @@ import java.util.function.Supplier;
  *
  * @author canuran
  */
+@SuppressWarnings("unchecked")
 public class BaseUpdate extends AbstractSQLUpdateClause<BaseUpdate> {
 
+    private SQLTemplateCache templateCache;
+    private QueryExecutor queryExecutor;
+    private int caseWhenMaxRows = 0;
+
     public BaseUpdate() {
         super((Connection) null, QueryUtils.DEFAULT_CONFIGURATION, QueryUtils.EMPTY_PATH_BASE);
     }
@@ -36,6 +50,51 @@ public class BaseUpdate extends AbstractSQLUpdateClause<BaseUpdate> {
         super(connection, configuration, entity);
     }
 
+    /**
+     * 设置SQL模板缓存，结构相同的语句不再重复序列化，一般由查询工厂设置。
+     */
+    public BaseUpdate templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    /**
+     * 设置异步执行器，一般由查询工厂设置。
+     */
+    public BaseUpdate queryExecutor(QueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+        return this;
+    }
+
+    /**
+     * 在异步执行器中执行，不能在事务中使用，提交后不要再修改该语句。
+     */
+    public CompletableFuture<Long> executeAsync() {
+        return Objects.requireNonNull(queryExecutor, "QueryExecutor must nonnull").submit(this::execute);
+    }
+
+    /**
+     * 批量更新时，字段相同且不超过指定行数的实体合并为一条 CASE WHEN 语句，默认不合并。
+     * <p>
+     * 例如：UPDATE t SET a = CASE WHEN id = ? THEN ? WHEN id = ? THEN ? ELSE a END WHERE id IN (?, ?)，
+     * 行数较多时 CASE 的匹配开销会超过批量执行，建议不超过几十行。
+     */
+    public BaseUpdate caseWhenMaxRows(int caseWhenMaxRows) {
+        this.caseWhenMaxRows = caseWhenMaxRows;
+        return this;
+    }
+
+    @Override
+    protected SQLSerializer createSerializer() {
+        // 批量执行时逐行序列化，小的整数等参数无法按对象标识对应，不使用模板缓存
+        if (templateCache == null || getBatchCount() > 0) {
+            return super.createSerializer();
+        }
+        SQLSerializer serializer = templateCache.createSerializer(configuration, true);
+        serializer.setUseLiterals(useLiterals);
+        return serializer;
+    }
+
     /**
      * 如果测试值为真则添加条件。
      */
@@ -162,19 +221,71 @@ public class BaseUpdate extends AbstractSQLUpdateClause<BaseUpdate> {
         return updatesByMapper(beans, DefaultMapper.WITH_NULL_BINDINGS);
     }
 
+    /**
+     * 按更新的字段（不含主键）对实体分组，同组的SQL相同，连续加入批次以便作为一个JDBC批次执行。
+     * <p>
+     * 只有主键的实体没有需要更新的字段，会被跳过。
+     */
     private long updatesByMapper(Collection<?> beans, Mapper<Object> mapper) {
         if (beans != null && !beans.isEmpty()) {
             List<? extends Path<?>> keyPaths = QueryUtils.getKeyPaths((RelationalPathBase) entity);
+            Map<Set<Path<?>>, List<Object>> groupBeans = new LinkedHashMap<>();
+            Map<Object, Map<Path<?>, Object>> beanValues = new IdentityHashMap<>();
             for (Object bean : beans) {
-                populate(bean, mapper)
-                        .where(QueryUtils.beanKeyEquals(keyPaths, bean))
-                        .addBatch();
+                Map<Path<?>, Object> values = mapper.createMap(entity, bean);
+                values.keySet().removeAll(keyPaths);
+                if (!values.isEmpty()) {
+                    groupBeans.computeIfAbsent(values.keySet(), paths -> new ArrayList<>()).add(bean);
+                    beanValues.put(bean, values);
+                }
+            }
+            for (List<Object> group : groupBeans.values()) {
+                if (group.size() > 1 && group.size() <= caseWhenMaxRows) {
+                    addCaseWhenBatch(keyPaths, group, beanValues);
+                } else {
+                    for (Object bean : group) {
+                        beanValues.get(bean).forEach((path, value) -> set((Path<Object>) path, value));
+                        where(QueryUtils.beanKeyEquals(keyPaths, bean)).addBatch();
+                    }
+                }
             }
             return executeBatch();
         }
         return 0L;
     }
 
+    /**
+     * 把同组的实体合并为一条 CASE WHEN 更新语句。
+     */
+    private void addCaseWhenBatch(List<? extends Path<?>> keyPaths, List<Object> group,
+                                 Map<Object, Map<Path<?>, Object>> beanValues) {
+        List<Predicate> keyEquals = new ArrayList<>(group.size());
+        for (Object bean : group) {
+            keyEquals.add(QueryUtils.beanKeyEquals(keyPaths, bean));
+        }
+        for (Path<?> path : beanValues.get(group.get(0)).keySet()) {
+            CaseBuilder.Cases<Object, ?> cases = null;
+            for (int i = 0; i < group.size(); i++) {
+                Object value = beanValues.get(group.get(i)).get(path);
+                Expression<Object> then = value == null ? (Expression) Null.CONSTANT : ConstantImpl.create(value);
+                cases = cases == null ? new CaseBuilder().when(keyEquals.get(i)).then(then)
+                        : cases.when(keyEquals.get(i)).then(then);
+            }
+            updates.put(path, cases.otherwise((Expression<Object>) path));
+        }
+        if (keyPaths.size() == 1) {
+            List<Object> keys = new ArrayList<>(group.size());
+            String name = keyPaths.get(0).getMetadata().getName();
+            for (Object bean : group) {
+                keys.add(QueryUtils.getBeanProperty(bean, name));
+            }
+            where(((SimpleExpression<Object>) keyPaths.get(0)).in(keys));
+        } else {
+            where(ExpressionUtils.anyOf(keyEquals));
+        }
+        addBatch();
+    }
+
     public long executeBatch() {
         return batches.isEmpty() ? 0L : execute();
     }
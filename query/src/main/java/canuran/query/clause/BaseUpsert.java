@@ -0,0 +1,495 @@
+package canuran.query.clause;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.*;
+import com.querydsl.sql.dml.AbstractSQLClause;
+import com.querydsl.sql.dml.DefaultMapper;
+import com.querydsl.sql.dml.Mapper;
+import com.querydsl.sql.types.Null;
+import canuran.query.QueryUtils;
+import canuran.query.support.BulkResult;
+
+import javax.inject.Provider;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 插入或更新语句，主键（或指定的唯一键）已存在时更新，否则插入，按数据库方言生成多行语句。
+ * <p>
+ * 字段相同的实体合并为同一组，每组按行数和参数个数分块，每块一条语句，返回每块的影响行数，
+ * 能区分时还包括插入行数和更新行数。
+ *
+ * @author canuran
+ */
+@SuppressWarnings("unchecked")
+public class BaseUpsert extends AbstractSQLClause<BaseUpsert> {
+
+    private final RelationalPathBase<?> entity;
+    private final QueryMetadata metadata = new DefaultQueryMetadata();
+    private final List<Map<Path<?>, Object>> rows = new ArrayList<>();
+    private Dialect dialect;
+    private List<? extends Path<?>> keyPaths;
+    private Path<?>[] updatePaths;
+    private int chunkSize = 1000;
+    private int maxParameters = 65535;
+
+    public BaseUpsert() {
+        this((Connection) null, QueryUtils.DEFAULT_CONFIGURATION, QueryUtils.EMPTY_PATH_BASE);
+    }
+
+    public BaseUpsert(Connection connection, Configuration configuration, RelationalPathBase<?> entity) {
+        super(configuration, connection);
+        this.entity = entity;
+    }
+
+    public BaseUpsert(Provider<Connection> connection, Configuration configuration, RelationalPathBase<?> entity) {
+        super(configuration, connection);
+        this.entity = entity;
+    }
+
+    /**
+     * 指定数据库方言，默认根据SQL模板选择。
+     */
+    public BaseUpsert dialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    /**
+     * 指定判断是否已存在的唯一键字段，默认为主键，MySQL由数据库根据所有唯一索引判断，忽略该设置。
+     */
+    public BaseUpsert keys(Path<?>... keyPaths) {
+        this.keyPaths = Arrays.asList(keyPaths);
+        return this;
+    }
+
+    /**
+     * 指定已存在时更新的字段，默认为除唯一键外的所有保存字段。
+     */
+    public BaseUpsert updates(Path<?>... updatePaths) {
+        this.updatePaths = updatePaths;
+        return this;
+    }
+
+    /**
+     * 设置每条语句的最大行数，默认1000。
+     */
+    public BaseUpsert chunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * 设置每条语句的最大参数个数，默认为MySQL预编译语句的上限65535。
+     */
+    public BaseUpsert maxParameters(int maxParameters) {
+        this.maxParameters = maxParameters;
+        return this;
+    }
+
+    /**
+     * 添加实体，忽略空值字段。
+     */
+    public BaseUpsert populate(Object bean) {
+        return populate(bean, DefaultMapper.DEFAULT);
+    }
+
+    /**
+     * 使用指定的映射器添加实体。
+     */
+    public BaseUpsert populate(Object bean, Mapper<Object> mapper) {
+        rows.add(mapper.createMap(entity, bean));
+        return this;
+    }
+
+    /**
+     * 保存实体，已存在则更新。
+     */
+    public long upsertBean(Object bean) {
+        return populate(bean).execute();
+    }
+
+    /**
+     * 批量保存实体，已存在则更新，返回每块的统计。
+     */
+    public BulkResult upsertBeans(Collection<?> beans) {
+        if (beans != null) {
+            beans.forEach(this::populate);
+        }
+        return executeBulk();
+    }
+
+    /**
+     * 批量保存实体，包括空值字段，已存在则更新，返回每块的统计。
+     */
+    public BulkResult upsertWithNulls(Collection<?> beans) {
+        if (beans != null) {
+            beans.forEach(bean -> populate(bean, DefaultMapper.WITH_NULL_BINDINGS));
+        }
+        return executeBulk();
+    }
+
+    @Override
+    public long execute() {
+        return executeBulk().getAffected();
+    }
+
+    /**
+     * 执行所有已添加的实体，每块一条语句，返回每块的统计。
+     */
+    public BulkResult executeBulk() {
+        BulkResult result = new BulkResult();
+        if (rows.isEmpty()) {
+            return result;
+        }
+        long start = System.currentTimeMillis();
+        for (Statement statement : createStatements()) {
+            long chunkStart = System.nanoTime();
+            statement.chunk.setAffected(execute(statement));
+            statement.dialect.count(statement.chunk);
+            statement.chunk.setElapsedNanos(System.nanoTime() - chunkStart);
+            result.addChunk(statement.chunk);
+        }
+        rows.clear();
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private long execute(Statement statement) {
+        Connection conn = connection();
+        context = startContext(conn, metadata, entity);
+        PreparedStatement stmt = null;
+        try {
+            listeners.preRender(context);
+            context.addSQL(statement.bindings());
+            listeners.rendered(context);
+            listeners.prePrepare(context);
+            stmt = conn.prepareStatement(statement.sql);
+            context.addPreparedStatement(stmt);
+            listeners.prepared(context);
+            setParameters(stmt, statement.constants, statement.paths, metadata.getParams());
+            listeners.preExecute(context);
+            long affected = stmt.executeUpdate();
+            listeners.executed(context);
+            return affected;
+        } catch (SQLException e) {
+            onException(context, e);
+            throw configuration.translate(statement.sql, statement.constants, e);
+        } finally {
+            if (stmt != null) {
+                close(stmt);
+            }
+            reset();
+            endContext(context);
+        }
+    }
+
+    @Override
+    public List<SQLBindings> getSQL() {
+        List<SQLBindings> bindings = new ArrayList<>();
+        for (Statement statement : createStatements()) {
+            bindings.add(statement.bindings());
+        }
+        return bindings;
+    }
+
+    @Override
+    public int getBatchCount() {
+        return rows.size();
+    }
+
+    @Override
+    public void clear() {
+        rows.clear();
+    }
+
+    @Override
+    public String toString() {
+        List<SQLBindings> bindings = getSQL();
+        return bindings.isEmpty() ? "" : bindings.get(0).getSQL();
+    }
+
+    /**
+     * 按字段分组并分块生成语句，同一组的更新字段相同。
+     */
+    private List<Statement> createStatements() {
+        Dialect currentDialect = dialect != null ? dialect : Dialect.of(configuration.getTemplates());
+        List<? extends Path<?>> keys = keyPaths != null ? keyPaths : QueryUtils.getKeyPaths(entity);
+        Map<Set<Path<?>>, List<Map<Path<?>, Object>>> groups = new LinkedHashMap<>();
+        for (Map<Path<?>, Object> row : rows) {
+            groups.computeIfAbsent(row.keySet(), paths -> new ArrayList<>()).add(row);
+        }
+        List<Statement> statements = new ArrayList<>();
+        for (List<Map<Path<?>, Object>> groupRows : groups.values()) {
+            List<Path<?>> columns = new ArrayList<>(groupRows.get(0).keySet());
+            List<Path<?>> updates = new ArrayList<>();
+            for (Path<?> column : columns) {
+                if (!keys.contains(column) && (updatePaths == null
+                        || Arrays.asList(updatePaths).contains(column))) {
+                    updates.add(column);
+                }
+            }
+            if (currentDialect != Dialect.MYSQL && !columns.containsAll(keys)) {
+                throw new IllegalArgumentException("Upsert rows must contain key columns " + keys);
+            }
+            int chunkRows = Math.max(1, Math.min(chunkSize, maxParameters / columns.size()));
+            for (int from = 0; from < groupRows.size(); from += chunkRows) {
+                List<Map<Path<?>, Object>> chunkRowList =
+                        groupRows.subList(from, Math.min(from + chunkRows, groupRows.size()));
+                statements.add(createStatement(currentDialect, columns, keys, updates, chunkRowList));
+            }
+        }
+        return statements;
+    }
+
+    private Statement createStatement(Dialect currentDialect, List<Path<?>> columns, List<? extends Path<?>> keys,
+                                      List<Path<?>> updates, List<Map<Path<?>, Object>> chunkRows) {
+        Statement statement = new Statement(currentDialect);
+        long bytes = 0L;
+        for (Map<Path<?>, Object> row : chunkRows) {
+            for (Path<?> column : columns) {
+                Object value = row.get(column);
+                bytes += QueryUtils.estimateBytes(value);
+                statement.constants.add(value == null ? Null.DEFAULT : value);
+                statement.paths.add(column);
+            }
+        }
+        StringBuilder sql = new StringBuilder();
+        currentDialect.render(this, sql, columns, keys, updates, chunkRows.size());
+        statement.sql = sql.toString();
+        statement.chunk = new BulkResult.Chunk(chunkRows.size(), statement.constants.size(), bytes + sql.length());
+        return statement;
+    }
+
+    private String tableName() {
+        SQLTemplates templates = configuration.getTemplates();
+        SchemaAndTable schemaAndTable = configuration.getOverride(entity.getSchemaAndTable());
+        String table = templates.quoteIdentifier(schemaAndTable.getTable());
+        if (templates.isPrintSchema() && schemaAndTable.getSchema() != null) {
+            return templates.quoteIdentifier(schemaAndTable.getSchema()) + "." + table;
+        }
+        return table;
+    }
+
+    private String columnName(Path<?> path) {
+        String name = configuration.getColumnOverride(entity.getSchemaAndTable(), ColumnMetadata.getName(path));
+        return configuration.getTemplates().quoteIdentifier(name);
+    }
+
+    private void appendColumns(StringBuilder sql, Collection<? extends Path<?>> paths, String prefix) {
+        boolean first = true;
+        for (Path<?> path : paths) {
+            sql.append(first ? "" : ", ").append(prefix).append(columnName(path));
+            first = false;
+        }
+    }
+
+    private static void appendValues(StringBuilder sql, int columns, int rows) {
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int j = 0; j < columns; j++) {
+                sql.append(j == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+    }
+
+    /**
+     * 插入或更新的数据库方言。
+     */
+    public enum Dialect {
+
+        /**
+         * MySQL的 INSERT ... ON DUPLICATE KEY UPDATE，由影响行数推算插入和更新行数。
+         */
+        MYSQL {
+            @Override
+            void render(BaseUpsert upsert, StringBuilder sql, List<Path<?>> columns,
+                        List<? extends Path<?>> keys, List<Path<?>> updates, int rows) {
+                sql.append("insert into ").append(upsert.tableName()).append(" (");
+                upsert.appendColumns(sql, columns, "");
+                sql.append(")\nvalues ");
+                appendValues(sql, columns.size(), rows);
+                sql.append("\non duplicate key update ");
+                if (updates.isEmpty()) {
+                    // 没有更新字段时赋值为自身，已存在的行保持不变
+                    String column = upsert.columnName(columns.get(0));
+                    sql.append(column).append(" = ").append(column);
+                }
+                boolean first = true;
+                for (Path<?> path : updates) {
+                    String column = upsert.columnName(path);
+                    sql.append(first ? "" : ", ").append(column).append(" = values(").append(column).append(')');
+                    first = false;
+                }
+            }
+
+            /**
+             * 插入的行计1，更新的行计2，未变化的行在默认的 useAffectedRows=false 时计1，
+             * 所以更新行数为影响行数减去提交行数，其余（包括未变化的行）计为插入。
+             */
+            @Override
+            void count(BulkResult.Chunk chunk) {
+                long updated = Math.max(0L, Math.min(chunk.getRows(), chunk.getAffected() - chunk.getRows()));
+                chunk.setUpdated(updated);
+                chunk.setInserted(chunk.getRows() - updated);
+            }
+        },
+
+        /**
+         * H2的 MERGE INTO ... KEY，会更新所有保存字段，只更新部分字段时使用标准的 MERGE。
+         */
+        H2 {
+            @Override
+            void render(BaseUpsert upsert, StringBuilder sql, List<Path<?>> columns,
+                        List<? extends Path<?>> keys, List<Path<?>> updates, int rows) {
+                if (updates.size() + keys.size() < columns.size()) {
+                    MERGE.render(upsert, sql, columns, keys, updates, rows);
+                    return;
+                }
+                sql.append("merge into ").append(upsert.tableName()).append(" (");
+                upsert.appendColumns(sql, columns, "");
+                sql.append(") key (");
+                upsert.appendColumns(sql, keys, "");
+                sql.append(")\nvalues ");
+                appendValues(sql, columns.size(), rows);
+            }
+        },
+
+        /**
+         * PostgreSQL的 INSERT ... ON CONFLICT (唯一键) DO UPDATE，也适用于SQLite 3.24及以上版本，
+         * 没有更新字段时为 DO NOTHING，已存在的行不计入影响行数。
+         */
+        POSTGRESQL {
+            @Override
+            void render(BaseUpsert upsert, StringBuilder sql, List<Path<?>> columns,
+                        List<? extends Path<?>> keys, List<Path<?>> updates, int rows) {
+                sql.append("insert into ").append(upsert.tableName()).append(" (");
+                upsert.appendColumns(sql, columns, "");
+                sql.append(")\nvalues ");
+                appendValues(sql, columns.size(), rows);
+                sql.append("\non conflict (");
+                upsert.appendColumns(sql, keys, "");
+                if (updates.isEmpty()) {
+                    sql.append(") do nothing");
+                    return;
+                }
+                sql.append(") do update set ");
+                boolean first = true;
+                for (Path<?> path : updates) {
+                    String column = upsert.columnName(path);
+                    sql.append(first ? "" : ", ").append(column).append(" = excluded.").append(column);
+                    first = false;
+                }
+            }
+        },
+
+        /**
+         * 标准的 MERGE INTO ... USING ... ON，适用于Oracle、SQL Server、DB2、HSQLDB。
+         */
+        MERGE {
+            @Override
+            void render(BaseUpsert upsert, StringBuilder sql, List<Path<?>> columns,
+                        List<? extends Path<?>> keys, List<Path<?>> updates, int rows) {
+                SQLTemplates templates = upsert.configuration.getTemplates();
+                sql.append("merge into ").append(upsert.tableName()).append(" t\nusing (");
+                if (templates instanceof OracleTemplates) {
+                    // Oracle不支持VALUES派生表，使用 SELECT ... FROM DUAL UNION ALL
+                    for (int i = 0; i < rows; i++) {
+                        sql.append(i == 0 ? "select " : " union all select ");
+                        for (int j = 0; j < columns.size(); j++) {
+                            sql.append(j == 0 ? "? " : ", ? ").append(upsert.columnName(columns.get(j)));
+                        }
+                        sql.append(" from dual");
+                    }
+                    sql.append(") s\non (");
+                } else {
+                    sql.append("values ");
+                    appendValues(sql, columns.size(), rows);
+                    sql.append(") s (");
+                    upsert.appendColumns(sql, columns, "");
+                    sql.append(")\non (");
+                }
+                boolean first = true;
+                for (Path<?> key : keys) {
+                    String column = upsert.columnName(key);
+                    sql.append(first ? "" : " and ").append("t.").append(column).append(" = s.").append(column);
+                    first = false;
+                }
+                sql.append(')');
+                if (!updates.isEmpty()) {
+                    sql.append("\nwhen matched then update set ");
+                    first = true;
+                    for (Path<?> path : updates) {
+                        String column = upsert.columnName(path);
+                        sql.append(first ? "" : ", ").append(column).append(" = s.").append(column);
+                        first = false;
+                    }
+                }
+                sql.append("\nwhen not matched then insert (");
+                upsert.appendColumns(sql, columns, "");
+                sql.append(") values (");
+                upsert.appendColumns(sql, columns, "s.");
+                sql.append(')');
+                if (templates instanceof SQLServerTemplates) {
+                    // SQL Server要求MERGE以分号结束
+                    sql.append(';');
+                }
+            }
+        };
+
+        /**
+         * 根据SQL模板选择方言，不支持的数据库需要通过 dialect() 指定。
+         */
+        public static Dialect of(SQLTemplates templates) {
+            if (templates instanceof MySQLTemplates) {
+                return MYSQL;
+            } else if (templates instanceof H2Templates) {
+                return H2;
+            } else if (templates instanceof PostgreSQLTemplates || templates instanceof SQLiteTemplates) {
+                return POSTGRESQL;
+            } else if (templates instanceof OracleTemplates || templates instanceof SQLServerTemplates
+                    || templates instanceof DB2Templates || templates instanceof HSQLDBTemplates) {
+                return MERGE;
+            }
+            throw new UnsupportedOperationException("Upsert is not supported for "
+                    + templates.getClass().getSimpleName() + ", specify the dialect explicitly");
+        }
+
+        abstract void render(BaseUpsert upsert, StringBuilder sql, List<Path<?>> columns,
+                             List<? extends Path<?>> keys, List<Path<?>> updates, int rows);
+
+        /**
+         * 根据影响行数计算插入和更新行数，默认无法区分。
+         */
+        void count(BulkResult.Chunk chunk) {
+        }
+    }
+
+    private static class Statement {
+
+        private final Dialect dialect;
+        private final List<Object> constants = new ArrayList<>();
+        private final List<Path<?>> paths = new ArrayList<>();
+        private String sql;
+        private BulkResult.Chunk chunk;
+
+        Statement(Dialect dialect) {
+            this.dialect = dialect;
+        }
+
+        SQLBindings bindings() {
+            List<Object> values = new ArrayList<>(constants.size());
+            for (Object constant : constants) {
+                values.add(constant instanceof Null ? null : constant);
+            }
+            return new SQLBindings(sql, values);
+        }
+
+    }
+
+}
@@ -8,9 +8,11 @@ import com.querydsl.sql.Configuration;
 import com.querydsl.sql.RelationalPath;
 import com.querydsl.sql.RelationalPathBase;
 import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLSerializer;
 import com.querydsl.sql.dml.AbstractSQLInsertClause;
 import com.querydsl.sql.dml.DefaultMapper;
 import canuran.query.QueryUtils;
+import canuran.query.support.SQLTemplateCache;
 
 import javax.inject.Provider;
 import java.sql.Connection;
@@ -24,6 +26,8 @@ import java.util.*;
 @SuppressWarnings("unchecked")
 public class MysqlInsert extends AbstractSQLInsertClause<MysqlInsert> {
 
+    private SQLTemplateCache templateCache;
+
     public MysqlInsert() {
         super((Connection) null, QueryUtils.DEFAULT_CONFIGURATION, QueryUtils.EMPTY_PATH_BASE);
     }
@@ -44,6 +48,25 @@ public class MysqlInsert extends AbstractSQLInsertClause<MysqlInsert> {
         super(connection, configuration, entity);
     }
 
+    /**
+     * 设置SQL模板缓存，结构相同的语句不再重复序列化，一般由查询工厂设置。
+     */
+    public MysqlInsert templateCache(SQLTemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+
+    @Override
+    protected SQLSerializer createSerializer() {
+        // 批量执行时逐行序列化，小的整数等参数无法按对象标识对应，不使用模板缓存
+        if (templateCache == null || getBatchCount() > 0) {
+            return super.createSerializer();
+        }
+        SQLSerializer serializer = templateCache.createSerializer(configuration, true);
+        serializer.setUseLiterals(useLiterals);
+        return serializer;
+    }
+
     /**
      * MySql专用保存实体，如果唯一键已存在则更新。
      */
@@ -66,7 +89,8 @@ public class MysqlInsert extends AbstractSQLInsertClause<MysqlInsert> {
             Collection<Path<?>> duplicates = filterUpdatePaths(valuesMap.keySet(), duplicatePaths);
 
             MysqlInsert mysqlInsert = updatePathsInsertMap.computeIfAbsent(duplicates, paths -> {
-                MysqlInsert insert = new MysqlInsert(connection(), configuration, entity);
+                MysqlInsert insert = new MysqlInsert(connection(), configuration, entity)
+                        .templateCache(templateCache);
                 return onDuplicateUpdates(insert, paths).batchToBulk();
             });
 
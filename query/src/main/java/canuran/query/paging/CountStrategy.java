@@ -0,0 +1,30 @@
+package canuran.query.paging;
+
+/**
+ * 分页统计总数的策略。
+ *
+ * @author canuran
+ */
+public enum CountStrategy {
+
+    /**
+     * 精确统计，每次都执行COUNT查询。
+     */
+    EXACT,
+
+    /**
+     * 缓存精确统计的结果，相同的查询及参数在有效期内复用总数。
+     */
+    CACHED,
+
+    /**
+     * 使用执行计划（EXPLAIN）估算的行数，仅支持MySQL，不支持时精确统计。
+     */
+    ESTIMATED,
+
+    /**
+     * 最多统计到上限加一行，超过上限时总数为上限，显示为“N+”。
+     */
+    CAPPED
+
+}
@@ -0,0 +1,71 @@
+package canuran.query.paging;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 游标分页参数，根据上一页最后一行的排序键定位下一页，任意深度的分页开销相同。
+ * <p>
+ * 首页不传排序键，后续页把上一页 Slice 的 nextKeys 原样传回即可。
+ *
+ * @author canuran
+ **/
+public class KeysetPaging implements Serializable, Paging {
+    private static final long serialVersionUID = 1L;
+
+    private Object[] lastKeys;
+    private long limit = 100;
+
+    public KeysetPaging() {
+    }
+
+    public KeysetPaging(long limit) {
+        this.limit = limit;
+    }
+
+    public KeysetPaging(Object[] lastKeys, long limit) {
+        this.lastKeys = lastKeys;
+        this.limit = limit;
+    }
+
+    /**
+     * 游标分页不统计总数。
+     */
+    @Override
+    public boolean isCountRows() {
+        return false;
+    }
+
+    @Override
+    public long getOffset() {
+        return 0L;
+    }
+
+    @Override
+    public long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 上一页最后一行的排序键，与排序字段一一对应，为空时查询首页。
+     */
+    public Object[] getLastKeys() {
+        return lastKeys;
+    }
+
+    public void setLastKeys(Object[] lastKeys) {
+        this.lastKeys = lastKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPaging{" +
+                "lastKeys=" + Arrays.toString(lastKeys) +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -17,6 +17,8 @@ public class NumPaging implements Serializable, Paging {
     private long size = 100;
     private boolean countRows = true;
     private boolean fetchRows = true;
+    private CountStrategy countStrategy = CountStrategy.EXACT;
+    private long countCap = 1000L;
 
     public NumPaging() {
     }
@@ -61,6 +63,24 @@ public class NumPaging implements Serializable, Paging {
         this.fetchRows = fetchRows;
     }
 
+    @Override
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public void setCountStrategy(CountStrategy countStrategy) {
+        this.countStrategy = countStrategy == null ? CountStrategy.EXACT : countStrategy;
+    }
+
+    @Override
+    public long getCountCap() {
+        return countCap;
+    }
+
+    public void setCountCap(long countCap) {
+        this.countCap = countCap;
+    }
+
     public long getPage() {
         return page;
     }
@@ -84,6 +104,8 @@ public class NumPaging implements Serializable, Paging {
                 ", size=" + size +
                 ", countRows=" + countRows +
                 ", fetchRows=" + fetchRows +
+                ", countStrategy=" + countStrategy +
+                ", countCap=" + countCap +
                 '}';
     }
 }
@@ -17,6 +17,8 @@ public class OffsetPaging implements Serializable, Paging {
     private long limit = 100;
     private boolean countRows = true;
     private boolean fetchRows = true;
+    private CountStrategy countStrategy = CountStrategy.EXACT;
+    private long countCap = 1000L;
 
     public OffsetPaging() {
     }
@@ -69,6 +71,24 @@ public class OffsetPaging implements Serializable, Paging {
         this.fetchRows = fetchRows;
     }
 
+    @Override
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public void setCountStrategy(CountStrategy countStrategy) {
+        this.countStrategy = countStrategy == null ? CountStrategy.EXACT : countStrategy;
+    }
+
+    @Override
+    public long getCountCap() {
+        return countCap;
+    }
+
+    public void setCountCap(long countCap) {
+        this.countCap = countCap;
+    }
+
     @Override
     public String toString() {
         return "OffsetPager{" +
@@ -76,6 +96,8 @@ public class OffsetPaging implements Serializable, Paging {
                 ", limit=" + limit +
                 ", countRows=" + countRows +
                 ", fetchRows=" + fetchRows +
+                ", countStrategy=" + countStrategy +
+                ", countCap=" + countCap +
                 '}';
     }
 }
@@ -17,6 +17,10 @@ public class Page<T> implements Serializable {
 
     private List<T> rows;
 
+    private CountStrategy countStrategy;
+
+    private boolean capped;
+
     public Page() {
         this.rows = Collections.emptyList();
     }
@@ -39,6 +43,28 @@ public class Page<T> implements Serializable {
         this.total = total;
     }
 
+    /**
+     * 实际使用的统计策略，没有统计总数时为空。
+     */
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public void setCountStrategy(CountStrategy countStrategy) {
+        this.countStrategy = countStrategy;
+    }
+
+    /**
+     * 总数是否达到统计上限，为真时实际总数大于total，应显示为“total+”。
+     */
+    public boolean isCapped() {
+        return capped;
+    }
+
+    public void setCapped(boolean capped) {
+        this.capped = capped;
+    }
+
     public List<T> getRows() {
         return rows;
     }
@@ -52,6 +78,16 @@ public class Page<T> implements Serializable {
         return this;
     }
 
+    /**
+     * 复用总数及统计信息创建新的分页数据。
+     */
+    public <R> Page<R> withRows(List<R> rows) {
+        Page<R> page = new Page<>(total, rows);
+        page.countStrategy = countStrategy;
+        page.capped = capped;
+        return page;
+    }
+
     public static <E> Page<E> emptyPage() {
         return new Page<>();
     }
@@ -60,6 +96,8 @@ public class Page<T> implements Serializable {
     public String toString() {
         return "Page{" +
                 "total=" + total +
+                ", countStrategy=" + countStrategy +
+                ", capped=" + capped +
                 ", rows=" + rows +
                 '}';
     }
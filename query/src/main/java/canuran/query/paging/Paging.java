@@ -16,6 +16,20 @@ public interface Paging {
         return true;
     }
 
+    /**
+     * 统计总数的策略，默认精确统计。
+     */
+    default CountStrategy getCountStrategy() {
+        return CountStrategy.EXACT;
+    }
+
+    /**
+     * 使用CAPPED策略时最多统计的行数。
+     */
+    default long getCountCap() {
+        return 1000L;
+    }
+
     long getLimit();
 
     long getOffset();
@@ -0,0 +1,80 @@
+package canuran.query.paging;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 游标分页数据，不含总数，使用 nextKeys 作为续传令牌查询下一页。
+ *
+ * @author canuran
+ **/
+public class Slice<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<T> rows;
+
+    private boolean hasNext;
+
+    private Object[] nextKeys;
+
+    public Slice() {
+        this.rows = Collections.emptyList();
+    }
+
+    public Slice(List<T> rows, boolean hasNext, Object[] nextKeys) {
+        this.rows = rows == null ? Collections.emptyList() : rows;
+        this.hasNext = hasNext;
+        this.nextKeys = nextKeys;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<T> rows) {
+        this.rows = rows == null ? Collections.emptyList() : rows;
+    }
+
+    /**
+     * 是否还有下一页。
+     */
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * 本页最后一行的排序键，没有下一页时为空。
+     */
+    public Object[] getNextKeys() {
+        return nextKeys;
+    }
+
+    public void setNextKeys(Object[] nextKeys) {
+        this.nextKeys = nextKeys;
+    }
+
+    public Slice<T> forEach(Consumer<T> consumer) {
+        this.rows.forEach(consumer);
+        return this;
+    }
+
+    public static <E> Slice<E> emptySlice() {
+        return new Slice<>();
+    }
+
+    @Override
+    public String toString() {
+        return "Slice{" +
+                "hasNext=" + hasNext +
+                ", nextKeys=" + Arrays.toString(nextKeys) +
+                ", rows=" + rows +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package canuran.query.support;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * 分块批量执行的结果，包含每块的行数、参数个数、估算大小、影响行数和耗时，
+ * 插入或更新（Upsert）时还包含能区分的插入行数和更新行数。
+ *
+ * @author canuran
+ */
+public class BulkResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    private long elapsedMillis;
+
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    public void addChunk(Chunk chunk) {
+        chunks.add(chunk);
+    }
+
+    /**
+     * 提交的总行数。
+     */
+    public long getRows() {
+        return chunks.stream().mapToLong(Chunk::getRows).sum();
+    }
+
+    /**
+     * 数据库返回的总影响行数。
+     */
+    public long getAffected() {
+        return chunks.stream().mapToLong(Chunk::getAffected).sum();
+    }
+
+    /**
+     * 插入的总行数，有分块无法区分时为-1。
+     */
+    public long getInserted() {
+        return sumKnown(Chunk::getInserted);
+    }
+
+    /**
+     * 更新的总行数，有分块无法区分时为-1。
+     */
+    public long getUpdated() {
+        return sumKnown(Chunk::getUpdated);
+    }
+
+    private long sumKnown(ToLongFunction<Chunk> counter) {
+        long sum = 0L;
+        for (Chunk chunk : chunks) {
+            long count = counter.applyAsLong(chunk);
+            if (count < 0) {
+                return -1L;
+            }
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * 全部分块的总耗时。
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" +
+                "chunks=" + chunks.size() +
+                ", rows=" + getRows() +
+                ", affected=" + getAffected() +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+
+    /**
+     * 单个分块的统计。
+     */
+    public static class Chunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int rows;
+
+        private final int parameters;
+
+        private final long estimatedBytes;
+
+        private long affected;
+
+        private long inserted = -1L;
+
+        private long updated = -1L;
+
+        private long elapsedNanos = -1L;
+
+        public Chunk(int rows, int parameters, long estimatedBytes) {
+            this.rows = rows;
+            this.parameters = parameters;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * 绑定参数（占位符）的个数。
+         */
+        public int getParameters() {
+            return parameters;
+        }
+
+        /**
+         * 估算的数据包大小（字节）。
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public long getAffected() {
+            return affected;
+        }
+
+        public void setAffected(long affected) {
+            this.affected = affected;
+        }
+
+        /**
+         * 插入行数，无法区分插入和更新时为-1。
+         */
+        public long getInserted() {
+            return inserted;
+        }
+
+        public void setInserted(long inserted) {
+            this.inserted = inserted;
+        }
+
+        /**
+         * 更新行数，无法区分插入和更新时为-1。
+         */
+        public long getUpdated() {
+            return updated;
+        }
+
+        public void setUpdated(long updated) {
+            this.updated = updated;
+        }
+
+        /**
+         * 执行耗时，与其他分块一起执行时为-1。
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public void setElapsedNanos(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{" +
+                    "rows=" + rows +
+                    ", parameters=" + parameters +
+                    ", estimatedBytes=" + estimatedBytes +
+                    ", affected=" + affected +
+                    ", inserted=" + inserted +
+                    ", updated=" + updated +
+                    ", elapsedNanos=" + elapsedNanos +
+                    '}';
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package canuran.query.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页总数缓存，以SQL及参数为键，在有效期内复用统计结果，超出容量时淘汰最久未使用的。
+ *
+ * @author canuran
+ */
+public class CountCache {
+
+    private final long ttlMillis;
+    private final Map<String, long[]> cache;
+
+    public CountCache() {
+        this(60000L, 10000);
+    }
+
+    public CountCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<String, long[]>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的总数，不存在或已过期时重新统计，统计时不加锁。
+     */
+    public long get(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            // 值为总数和过期时间
+            long[] value = cache.get(key);
+            if (value != null && value[1] > now) {
+                return value[0];
+            }
+        }
+        long count = counter.getAsLong();
+        synchronized (cache) {
+            cache.put(key, new long[]{count, now + ttlMillis});
+        }
+        return count;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+}
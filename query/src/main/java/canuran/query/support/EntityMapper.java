@@ -0,0 +1,80 @@
+package canuran.query.support;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.QBean;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.RelationalPath;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 查询对象的实体映射器，按列的位置绑定 LambdaMetafactory 生成的Setter，直接从结果集填充实体。
+ * <p>
+ * 列的位置与 addMetadata() 注册的顺序一致，也就是 selectFrom 生成的查询字段顺序，
+ * 创建时需要生成Setter，由查询工厂持有的 EntityMapperCache 复用。
+ *
+ * @author canuran
+ */
+@SuppressWarnings("unchecked")
+public class EntityMapper<T> {
+
+    private final Supplier<T> constructor;
+    private final Path<?>[] columns;
+    private final Class<?>[] types;
+    private final BiConsumer<Object, Object>[] setters;
+
+    private EntityMapper(RelationalPath<T> entity) {
+        Class<? extends T> type = entity.getType();
+        List<Path<?>> columnList = entity.getColumns();
+        Map<String, Method> writeMethods = LambdaBean.getWriteMethods(type);
+        this.constructor = (Supplier<T>) LambdaBean.createConstructor(type);
+        this.columns = columnList.toArray(new Path<?>[0]);
+        this.types = new Class<?>[columns.length];
+        this.setters = new BiConsumer[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = columns[i].getType();
+            Method setter = writeMethods.get(columns[i].getMetadata().getName());
+            setters[i] = setter == null ? null : LambdaBean.createSetter(setter);
+        }
+    }
+
+    /**
+     * 创建查询对象的映射器，实体不是Bean（没有无参构造方法）时返回空。
+     */
+    public static <T> EntityMapper<T> of(RelationalPath<T> entity) {
+        if (!(entity.getProjection() instanceof QBean)) {
+            return null;
+        }
+        return new EntityMapper<>(entity);
+    }
+
+    /**
+     * 将结果集的当前行映射为实体，类型转换与 Querydsl 相同。
+     */
+    public T map(ResultSet resultSet, Configuration configuration) throws SQLException {
+        T bean = constructor.get();
+        for (int i = 0; i < columns.length; i++) {
+            BiConsumer<Object, Object> setter = setters[i];
+            if (setter == null) {
+                continue;
+            }
+            Object value = configuration.get(resultSet, columns[i], i + 1, types[i]);
+            if (value != null) {
+                try {
+                    setter.accept(bean, value);
+                } catch (ClassCastException e) {
+                    throw new IllegalArgumentException("Column " + columns[i] + " of type "
+                            + value.getClass().getName() + " can not be set to " + bean.getClass().getName(), e);
+                }
+            }
+        }
+        return bean;
+    }
+
+}
@@ -0,0 +1,95 @@
+package canuran.query.support;
+
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SchemaAndTable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 实体映射器缓存，以查询对象类型和表为键，别名不同的查询对象共用同一个映射器，超出容量时淘汰最久未使用的。
+ * <p>
+ * 由查询工厂持有，随工厂一起释放，不会长期引用其他类加载器中的实体类型和查询对象。
+ *
+ * @author canuran
+ */
+public class EntityMapperCache {
+
+    private final Map<Key, EntityMapper<?>> cache;
+
+    public EntityMapperCache() {
+        this(1000);
+    }
+
+    public EntityMapperCache(int maxSize) {
+        this.cache = new LinkedHashMap<Key, EntityMapper<?>>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, EntityMapper<?>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取查询对象的映射器，不存在时创建后缓存，实体不是Bean时返回空。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> EntityMapper<T> get(RelationalPath<T> entity) {
+        Key key = new Key(entity.getClass(), entity.getSchemaAndTable());
+        EntityMapper<?> mapper;
+        synchronized (cache) {
+            mapper = cache.get(key);
+        }
+        if (mapper == null) {
+            mapper = EntityMapper.of(entity);
+            if (mapper == null) {
+                return null;
+            }
+            synchronized (cache) {
+                cache.put(key, mapper);
+            }
+        }
+        return (EntityMapper<T>) mapper;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final SchemaAndTable schemaAndTable;
+
+        Key(Class<?> type, SchemaAndTable schemaAndTable) {
+            this.type = type;
+            this.schemaAndTable = schemaAndTable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return type == that.type && Objects.equals(schemaAndTable, that.schemaAndTable);
+        }
+
+        @Override
+        public int hashCode() {
+            return type.hashCode() * 31 + Objects.hashCode(schemaAndTable);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package canuran.query.support;
+
+import canuran.query.QueryUtils;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.QBean;
+import com.querydsl.sql.RelationalPath;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * fitBean 匹配结果缓存，以Bean类型和表达式的对象标识为键，超出容量时淘汰最久未使用的。
+ * <p>
+ * 由查询工厂持有，随工厂一起释放，不会长期引用其他类加载器中的Bean类型和查询对象。
+ *
+ * @author canuran
+ */
+public class FitBeanCache {
+
+    private final Map<Key, QBean<?>> cache;
+
+    public FitBeanCache() {
+        this(1000);
+    }
+
+    public FitBeanCache(int maxSize) {
+        this.cache = new LinkedHashMap<Key, QBean<?>>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, QBean<?>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取匹配的Bean投影，不存在时匹配后缓存，lambda为真时使用 LambdaMetafactory 生成的Setter。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> QBean<T> get(Class<? extends T> type, boolean lambda, Expression<?>... expressions) {
+        Key key = new Key(type, lambda, expressions);
+        QBean<?> bean;
+        synchronized (cache) {
+            bean = cache.get(key);
+        }
+        if (bean == null) {
+            bean = lambda ? QueryUtils.fitLambdaBean(type, expressions) : QueryUtils.fitBean(type, expressions);
+            synchronized (cache) {
+                cache.put(key, bean);
+            }
+        }
+        return (QBean<T>) bean;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 缓存键，FactoryExpression展开为参数，使每次新建的Tuple投影也能命中。
+     */
+    private static final class Key {
+        private final Class<?> type;
+        private final boolean lambda;
+        private final Object[] parts;
+        private final int hash;
+
+        Key(Class<?> type, boolean lambda, Expression<?>[] expressions) {
+            List<Object> list = new ArrayList<>(expressions.length);
+            for (Expression<?> expression : expressions) {
+                if (expression instanceof FactoryExpression && !(expression instanceof RelationalPath)) {
+                    List<Expression<?>> args = ((FactoryExpression<?>) expression).getArgs();
+                    list.add(FactoryExpression.class);
+                    list.add(args.size());
+                    list.addAll(args);
+                } else {
+                    list.add(expression);
+                }
+            }
+            this.type = type;
+            this.lambda = lambda;
+            this.parts = list.toArray();
+            int h = type.hashCode() * 31 + Boolean.hashCode(lambda);
+            for (Object part : parts) {
+                h = h * 31 + System.identityHashCode(part);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            if (type != that.type || lambda != that.lambda || parts.length != that.parts.length) {
+                return false;
+            }
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] != that.parts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
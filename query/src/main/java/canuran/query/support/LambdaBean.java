@@ -0,0 +1,160 @@
+package canuran.query.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.QBean;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 使用 LambdaMetafactory 生成构造器和Setter的Bean投影，避免每行每列的反射调用。
+ * <p>
+ * Bean类对当前类加载器不可见时（如 devtools 重启加载器）退化为 MethodHandle 调用。
+ *
+ * @author canuran
+ */
+@SuppressWarnings("unchecked")
+public class LambdaBean<T> extends QBean<T> {
+    private static final long serialVersionUID = 1L;
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final transient Supplier<T> constructor;
+    private final transient BiConsumer<Object, Object>[] setters;
+
+    public LambdaBean(Class<? extends T> type, Map<String, ? extends Expression<?>> bindings) {
+        super(type, bindings);
+        this.constructor = (Supplier<T>) createConstructor(type);
+        this.setters = new BiConsumer[bindings.size()];
+        Map<String, Method> writeMethods = getWriteMethods(type);
+        // 与父类的参数顺序一致
+        int index = 0;
+        for (String property : bindings.keySet()) {
+            Method setter = writeMethods.get(property);
+            setters[index++] = setter == null ? null : createSetter(setter);
+        }
+    }
+
+    @Override
+    public T newInstance(Object... args) {
+        T bean = constructor.get();
+        for (int i = 0; i < args.length; i++) {
+            Object value = args[i];
+            BiConsumer<Object, Object> setter = setters[i];
+            if (value != null && setter != null) {
+                try {
+                    setter.accept(bean, value);
+                } catch (ClassCastException e) {
+                    List<Expression<?>> expressions = getArgs();
+                    typeMismatch(value.getClass(), expressions.get(i));
+                }
+            }
+        }
+        return bean;
+    }
+
+    static Map<String, Method> getWriteMethods(Class<?> type) {
+        Map<String, Method> writeMethods = new HashMap<>();
+        try {
+            for (PropertyDescriptor property : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (property.getWriteMethod() != null) {
+                    writeMethods.put(property.getName(), property.getWriteMethod());
+                }
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return writeMethods;
+    }
+
+    static Supplier<?> createConstructor(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+            if (isVisible(type)) {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                        handle, MethodType.methodType(type));
+                return (Supplier<?>) site.getTarget().invoke();
+            }
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return generic.invokeExact();
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            };
+        } catch (Throwable e) {
+            // 无法访问时使用反射
+            return () -> {
+                try {
+                    return type.newInstance();
+                } catch (InstantiationException | IllegalAccessException ex) {
+                    throw new IllegalStateException(ex.getMessage(), ex);
+                }
+            };
+        }
+    }
+
+    static BiConsumer<Object, Object> createSetter(Method setter) {
+        Class<?> type = setter.getDeclaringClass();
+        Class<?> valueType = MethodType.methodType(setter.getParameterTypes()[0]).wrap().returnType();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(setter);
+            if (isVisible(type) && isVisible(valueType)) {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class), SETTER_TYPE,
+                        handle, MethodType.methodType(void.class, type, valueType));
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            }
+            MethodHandle generic = handle.asType(SETTER_TYPE);
+            return (bean, value) -> {
+                try {
+                    generic.invokeExact(bean, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            };
+        } catch (Throwable e) {
+            // 无法访问时使用反射
+            setter.setAccessible(true);
+            return (bean, value) -> {
+                try {
+                    setter.invoke(bean, value);
+                } catch (IllegalArgumentException ex) {
+                    throw new ClassCastException(ex.getMessage());
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex.getMessage(), ex);
+                }
+            };
+        }
+    }
+
+    /**
+     * 生成的Lambda类由当前类加载器解析，只有公开且可见的类才能直接生成。
+     */
+    private static boolean isVisible(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, LambdaBean.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+}
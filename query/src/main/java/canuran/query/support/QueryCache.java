@@ -0,0 +1,218 @@
+package canuran.query.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SchemaAndTable;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果缓存，以SQL、参数及投影为键，记录查询读取的表，表有写入时该表的所有缓存失效，超出容量时淘汰最久未使用的。
+ * <p>
+ * 每张表有一个版本号，写入时递增，缓存保存查询开始前各表的版本号，读取时版本号不一致即失效，
+ * 所以查询期间发生的写入也不会留下旧数据。需要在 Configuration 中注册 getListener() 返回的监听器。
+ * <p>
+ * 事务中的查询可能读到未提交的数据，不使用缓存；事务中的写入在提交后再失效一次，
+ * 避免提交前的并发查询缓存旧数据。其他应用或原生JDBC的写入无法感知，只能等待缓存过期，缓存的实体是共享的，请勿修改。
+ *
+ * @author canuran
+ */
+public class QueryCache {
+
+    private final Map<Object, Entry> cache;
+    private final Map<SchemaAndTable, Long> versions = new HashMap<>();
+    private final QueryCacheListener listener = new QueryCacheListener(this);
+
+    public QueryCache() {
+        this(10000);
+    }
+
+    public QueryCache(int maxSize) {
+        this.cache = new LinkedHashMap<Object, Entry>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的结果，不存在、已过期或读取的表有写入时重新查询，查询时不加锁，在事务中时直接查询。
+     */
+    public Object get(Object key, Set<SchemaAndTable> tables, long ttlMillis, Supplier<?> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        long now = System.currentTimeMillis();
+        long[] tableVersions;
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.expireAt > now && entry.isCurrent(versions)) {
+                return entry.value;
+            }
+            tableVersions = new long[tables.size()];
+            int i = 0;
+            for (SchemaAndTable table : tables) {
+                tableVersions[i++] = versions.getOrDefault(table, 0L);
+            }
+        }
+        Object value = loader.get();
+        synchronized (cache) {
+            cache.put(key, new Entry(value, now + ttlMillis, tables, tableVersions));
+        }
+        return value;
+    }
+
+    /**
+     * 表有写入，使读取过该表的缓存全部失效，在事务中时提交后再失效一次。
+     */
+    public void evict(SchemaAndTable table) {
+        increaseVersion(table);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    increaseVersion(table);
+                }
+            });
+        }
+    }
+
+    private void increaseVersion(SchemaAndTable table) {
+        synchronized (cache) {
+            versions.merge(table, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 需要注册到 Configuration 中的监听器，在写入时使缓存失效。
+     */
+    public QueryCacheListener getListener() {
+        return listener;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 收集查询读取的所有表，包括关联、条件和子查询中的表。
+     */
+    public static Set<SchemaAndTable> getTables(QueryMetadata metadata) {
+        Set<SchemaAndTable> tables = new LinkedHashSet<>();
+        collectTables(metadata, tables);
+        return tables;
+    }
+
+    private static void collectTables(QueryMetadata metadata, Set<SchemaAndTable> tables) {
+        for (JoinExpression join : metadata.getJoins()) {
+            TableCollector.INSTANCE.collect(join.getTarget(), tables);
+            TableCollector.INSTANCE.collect(join.getCondition(), tables);
+        }
+        TableCollector.INSTANCE.collect(metadata.getProjection(), tables);
+        TableCollector.INSTANCE.collect(metadata.getWhere(), tables);
+        TableCollector.INSTANCE.collect(metadata.getHaving(), tables);
+    }
+
+    private static class TableCollector implements Visitor<Void, Set<SchemaAndTable>> {
+
+        private static final TableCollector INSTANCE = new TableCollector();
+
+        void collect(Expression<?> expression, Set<SchemaAndTable> tables) {
+            if (expression != null) {
+                expression.accept(this, tables);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Set<SchemaAndTable> tables) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<SchemaAndTable> tables) {
+            expr.getArgs().forEach(arg -> collect(arg, tables));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<SchemaAndTable> tables) {
+            expr.getArgs().forEach(arg -> collect(arg, tables));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<SchemaAndTable> tables) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<SchemaAndTable> tables) {
+            // 查询对象的根路径是内部代理，需要沿父路径查找
+            for (Path<?> path = expr; path != null; path = path.getMetadata().getParent()) {
+                if (path instanceof RelationalPath) {
+                    tables.add(((RelationalPath<?>) path).getSchemaAndTable());
+                    break;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<SchemaAndTable> tables) {
+            collectTables(expr.getMetadata(), tables);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<SchemaAndTable> tables) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collect((Expression<?>) arg, tables);
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static class Entry {
+
+        private final Object value;
+        private final long expireAt;
+        private final Set<SchemaAndTable> tables;
+        private final long[] tableVersions;
+
+        Entry(Object value, long expireAt, Set<SchemaAndTable> tables, long[] tableVersions) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.tables = tables;
+            this.tableVersions = tableVersions;
+        }
+
+        boolean isCurrent(Map<SchemaAndTable, Long> versions) {
+            int i = 0;
+            for (SchemaAndTable table : tables) {
+                if (versions.getOrDefault(table, 0L) != tableVersions[i++]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package canuran.query.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+import com.querydsl.sql.dml.SQLInsertBatch;
+import com.querydsl.sql.dml.SQLMergeBatch;
+import com.querydsl.sql.dml.SQLUpdateBatch;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询缓存监听器，插入、更新、删除和合并时使读取过该表的查询缓存失效，
+ * 执行结束后再失效一次，避免执行期间的并发查询缓存旧数据。
+ *
+ * @author canuran
+ */
+public class QueryCacheListener extends SQLBaseListener {
+
+    private final QueryCache queryCache;
+
+    public QueryCacheListener(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    @Override
+    public void notifyDelete(RelationalPath<?> entity, QueryMetadata md) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyDeletes(RelationalPath<?> entity, List<QueryMetadata> batches) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyMerge(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> keys,
+                            List<Path<?>> columns, List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyMerges(RelationalPath<?> entity, QueryMetadata md, List<SQLMergeBatch> batches) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyInsert(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> columns,
+                             List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyInserts(RelationalPath<?> entity, QueryMetadata md, List<SQLInsertBatch> batches) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyUpdate(RelationalPath<?> entity, QueryMetadata md, Map<Path<?>, Expression<?>> updates) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void notifyUpdates(RelationalPath<?> entity, List<SQLUpdateBatch> batches) {
+        queryCache.evict(entity.getSchemaAndTable());
+    }
+
+    @Override
+    public void end(SQLListenerContext context) {
+        // 只有写入语句有实体
+        RelationalPath<?> entity = context.getEntity();
+        if (entity != null) {
+            queryCache.evict(entity.getSchemaAndTable());
+        }
+    }
+
+}
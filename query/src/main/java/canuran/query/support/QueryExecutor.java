@@ -0,0 +1,217 @@
+package canuran.query.support;
+
+import org.slf4j.MDC;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 异步查询执行器，使用有界的专用线程池执行JDBC调用，线程数应与连接池大小一致，队列已满时直接失败。
+ * <p>
+ * 提交时复制调用线程的MDC，统计排队等待和执行的耗时。Spring事务的连接与线程绑定，
+ * 异步执行无法加入当前事务，所以在事务中提交会抛出异常。
+ * 通过 join 等待时，还在排队的任务会被取回到调用线程执行，避免线程池已满时执行器线程互相等待。
+ *
+ * @author canuran
+ */
+public class QueryExecutor {
+
+    private static final ThreadLocal<QueryExecutor> CURRENT = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder executeNanos = new LongAdder();
+
+    public QueryExecutor(int threads) {
+        this(threads, threads * 100);
+    }
+
+    public QueryExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "query-executor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 当前线程是否可以提交异步任务，在Spring事务中不可提交。
+     */
+    public boolean isSubmittable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * 当前线程是否正在执行该执行器的任务，此时等待同一执行器的其他任务可能因线程或连接耗尽而无法完成。
+     */
+    public boolean isExecutorThread() {
+        return CURRENT.get() == this;
+    }
+
+    /**
+     * 提交查询任务，在排队期间被取消的任务不再执行。
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!isSubmittable()) {
+            throw new IllegalStateException("Async query can not join the current transaction");
+        }
+        QueryTask<T> future = new QueryTask<>(task, MDC.getCopyOfContextMap());
+        submitted.increment();
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 等待任务完成并返回结果，任务还未开始时从队列取回，在当前线程执行。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T join(CompletableFuture<T> future) {
+        if (future instanceof QueryTask && ((QueryTask<T>) future).claim()) {
+            executor.remove((QueryTask<T>) future);
+            ((QueryTask<T>) future).execute();
+        }
+        return future.join();
+    }
+
+    private class QueryTask<T> extends CompletableFuture<T> implements Runnable {
+
+        private final Supplier<T> task;
+        private final Map<String, String> context;
+        private final long submitTime = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        QueryTask(Supplier<T> task, Map<String, String> context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        /**
+         * 执行器线程和等待线程只有一方能取得任务。
+         */
+        boolean claim() {
+            return !isDone() && claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public void run() {
+            if (claim()) {
+                execute();
+            }
+        }
+
+        void execute() {
+            long startTime = System.nanoTime();
+            started.increment();
+            queueNanos.add(startTime - submitTime);
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            QueryExecutor previousExecutor = CURRENT.get();
+            setContextMap(context);
+            CURRENT.set(QueryExecutor.this);
+            try {
+                complete(task.get());
+                completed.increment();
+            } catch (Throwable e) {
+                failed.increment();
+                completeExceptionally(e);
+            } finally {
+                executeNanos.add(System.nanoTime() - startTime);
+                setContextMap(previous);
+                if (previousExecutor == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previousExecutor);
+                }
+            }
+        }
+
+    }
+
+    private static void setContextMap(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 队列已满被拒绝的任务数。
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 平均排队等待时间，较大时说明线程或连接不足。
+     */
+    public double getAverageQueueMillis() {
+        long count = started.sum();
+        return count == 0 ? 0D : queueNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * 平均执行时间，包括获取连接的时间。
+     */
+    public double getAverageExecuteMillis() {
+        long count = completed.sum() + failed.sum();
+        return count == 0 ? 0D : executeNanos.sum() / 1e6 / count;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryExecutor{" +
+                "threads=" + executor.getMaximumPoolSize() +
+                ", active=" + getActiveCount() +
+                ", queued=" + getQueueSize() +
+                ", submitted=" + submitted.sum() +
+                ", completed=" + completed.sum() +
+                ", failed=" + failed.sum() +
+                ", rejected=" + rejected.sum() +
+                ", averageQueueMillis=" + getAverageQueueMillis() +
+                ", averageExecuteMillis=" + getAverageExecuteMillis() +
+                '}';
+    }
+
+}
@@ -0,0 +1,309 @@
+package canuran.query.support;
+
+import com.querydsl.core.QueryException;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+import com.querydsl.sql.dml.SQLInsertBatch;
+import com.querydsl.sql.dml.SQLMergeBatch;
+import com.querydsl.sql.dml.SQLUpdateBatch;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Provider;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 读写分离的连接提供者及监听器，写入和事务中的查询使用主库，其他查询按权重轮询从库。
+ * <p>
+ * 查询工厂识别该提供者后，查询使用 getReadProvider() 获取连接，插入、更新和删除使用 get() 获取主库连接。
+ * 当前线程写入后的一段时间内（默认为延迟阈值）查询也使用主库以读到刚写入的数据，请求结束时可调用 resetWrites() 提前结束。
+ * 从库获取连接失败时暂停使用一段时间，复制延迟超过阈值时跳过，没有可用的从库时使用主库。
+ *
+ * @author canuran
+ */
+public class ReadWriteConnectionProvider extends SQLBaseListener implements Provider<Connection> {
+
+    private final DataSource dataSource;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ThreadLocal<Long> lastWriteMillis = new ThreadLocal<>();
+    private long maxLagMillis = 1000L;
+    private long stickyMillis = -1L;
+    private long ejectMillis = 30000L;
+    private long lagCheckMillis = 5000L;
+
+    public ReadWriteConnectionProvider(DataSource dataSource, Configuration configuration) {
+        this.dataSource = Objects.requireNonNull(dataSource, "DataSource must nonnull");
+        Objects.requireNonNull(configuration, "Configuration must nonnull")
+                .addListener(this);
+    }
+
+    /**
+     * 添加从库及权重，权重越大分到的查询越多。
+     */
+    public ReadWriteConnectionProvider addReplica(DataSource replica, int weight) {
+        Objects.requireNonNull(replica, "Replica must nonnull");
+        synchronized (replicas) {
+            replicas.add(new Replica(replica, Math.max(1, weight)));
+        }
+        return this;
+    }
+
+    /**
+     * 设置从库可接受的最大复制延迟，默认1秒，小于等于0时不检查延迟。
+     */
+    public ReadWriteConnectionProvider maxLagMillis(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+        return this;
+    }
+
+    /**
+     * 设置写入后查询继续使用主库的时间，默认与最大复制延迟相同。
+     */
+    public ReadWriteConnectionProvider stickyMillis(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+        return this;
+    }
+
+    /**
+     * 设置从库获取连接失败后暂停使用的时间，默认30秒。
+     */
+    public ReadWriteConnectionProvider ejectMillis(long ejectMillis) {
+        this.ejectMillis = ejectMillis;
+        return this;
+    }
+
+    /**
+     * 设置检查从库复制延迟的间隔，默认5秒，在获取连接时检查。
+     */
+    public ReadWriteConnectionProvider lagCheckMillis(long lagCheckMillis) {
+        this.lagCheckMillis = lagCheckMillis;
+        return this;
+    }
+
+    /**
+     * 获取主库连接，有Spring事务时使用事务的连接。
+     */
+    @Override
+    public Connection get() {
+        return DataSourceUtils.getConnection(this.dataSource);
+    }
+
+    /**
+     * 查询使用的连接提供者。
+     */
+    public Provider<Connection> getReadProvider() {
+        return this::getReadConnection;
+    }
+
+    /**
+     * 获取查询连接，在事务中或刚写入过时使用主库，否则使用可用的从库。
+     */
+    public Connection getReadConnection() {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || isWriteSticky()) {
+            return get();
+        }
+        Connection connection = getReplicaConnection();
+        return connection == null ? get() : connection;
+    }
+
+    /**
+     * 结束当前线程的写入状态，一般在请求结束时调用。
+     */
+    public void resetWrites() {
+        lastWriteMillis.remove();
+    }
+
+    private boolean isWriteSticky() {
+        Long lastWrite = lastWriteMillis.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        long sticky = stickyMillis < 0L ? maxLagMillis : stickyMillis;
+        if (System.currentTimeMillis() - lastWrite < sticky) {
+            return true;
+        }
+        lastWriteMillis.remove();
+        return false;
+    }
+
+    /**
+     * 按平滑加权轮询依次尝试可用的从库，都不可用时返回空。
+     */
+    private Connection getReplicaConnection() {
+        List<Replica> candidates;
+        synchronized (replicas) {
+            candidates = new ArrayList<>(replicas);
+        }
+        while (!candidates.isEmpty()) {
+            Replica replica = selectReplica(candidates);
+            if (replica == null) {
+                return null;
+            }
+            candidates.remove(replica);
+            Connection connection;
+            try {
+                connection = replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.ejectedUntil = System.currentTimeMillis() + ejectMillis;
+                continue;
+            }
+            if (!isLagging(replica, connection)) {
+                return connection;
+            }
+            closeQuietly(connection);
+        }
+        return null;
+    }
+
+    private Replica selectReplica(List<Replica> candidates) {
+        long now = System.currentTimeMillis();
+        synchronized (replicas) {
+            Replica selected = null;
+            int totalWeight = 0;
+            for (Replica replica : candidates) {
+                if (replica.ejectedUntil > now || replica.lagging && now - replica.lagCheckedAt < lagCheckMillis) {
+                    continue;
+                }
+                replica.currentWeight += replica.weight;
+                totalWeight += replica.weight;
+                if (selected == null || replica.currentWeight > selected.currentWeight) {
+                    selected = replica;
+                }
+            }
+            if (selected != null) {
+                selected.currentWeight -= totalWeight;
+            }
+            return selected;
+        }
+    }
+
+    /**
+     * 超过检查间隔时在获取的连接上检查复制延迟，无法检查（如没有权限）时视为没有延迟。
+     */
+    private boolean isLagging(Replica replica, Connection connection) {
+        long now = System.currentTimeMillis();
+        if (maxLagMillis <= 0L || now - replica.lagCheckedAt < lagCheckMillis) {
+            return replica.lagging;
+        }
+        try {
+            replica.lagging = checkLagMillis(connection) > maxLagMillis;
+        } catch (SQLException e) {
+            replica.lagging = false;
+        }
+        replica.lagCheckedAt = now;
+        return replica.lagging;
+    }
+
+    /**
+     * 查询从库的复制延迟，默认使用MySQL的 SHOW SLAVE STATUS，不是从库时返回0，复制中断时返回最大值。
+     */
+    protected long checkLagMillis(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW SLAVE STATUS")) {
+            if (!resultSet.next()) {
+                return 0L;
+            }
+            long seconds = resultSet.getLong("Seconds_Behind_Master");
+            return resultSet.wasNull() ? Long.MAX_VALUE : seconds * 1000L;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // 已经不再使用该连接
+        }
+    }
+
+    @Override
+    public void notifyDelete(RelationalPath<?> entity, QueryMetadata md) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyDeletes(RelationalPath<?> entity, List<QueryMetadata> batches) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyMerge(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> keys,
+                            List<Path<?>> columns, List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyMerges(RelationalPath<?> entity, QueryMetadata md, List<SQLMergeBatch> batches) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyInsert(RelationalPath<?> entity, QueryMetadata md, List<Path<?>> columns,
+                             List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyInserts(RelationalPath<?> entity, QueryMetadata md, List<SQLInsertBatch> batches) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyUpdate(RelationalPath<?> entity, QueryMetadata md, Map<Path<?>, Expression<?>> updates) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void notifyUpdates(RelationalPath<?> entity, List<SQLUpdateBatch> batches) {
+        lastWriteMillis.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void end(SQLListenerContext context) {
+        // 只有写入语句有实体，写入结束时重新计时
+        if (context.getEntity() != null) {
+            lastWriteMillis.set(System.currentTimeMillis());
+        }
+        Connection connection = context.getConnection();
+        try {
+            // 主动释放没有被Spring事务管理的主库连接和所有从库连接
+            if (connection != null && !connection.isClosed()
+                    && !DataSourceUtils.isConnectionTransactional(connection, this.dataSource)) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private final int weight;
+        private int currentWeight;
+        private volatile long ejectedUntil;
+        private volatile long lagCheckedAt;
+        private volatile boolean lagging;
+
+        Replica(DataSource dataSource, int weight) {
+            this.dataSource = dataSource;
+            this.weight = weight;
+        }
+
+    }
+
+}
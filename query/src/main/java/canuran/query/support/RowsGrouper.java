@@ -0,0 +1,186 @@
+package canuran.query.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 关联查询结果分组器，把并列的多层对象一次遍历转换为树形对象，支持任意层级，例如用户、角色、权限：
+ * <pre>
+ * RowsGrouper.of(qUser, UserVo::getUserId)
+ *         .children(qRole, RoleVo::getRoleId, UserVo::getRoles, UserVo::setRoles)
+ *         .children(qAuthority, Authority::getAuthorityId, RoleVo::getAuthorities, RoleVo::setAuthorities)
+ *         .group(rows);
+ * </pre>
+ * 每个对象只取一次Key，同一父对象下按Key去重，父对象和子对象都保持查询结果中首次出现的顺序。
+ * 对象或Key为空时忽略该行后续的层级，子对象集合为空时创建 ArrayList 并追加。
+ *
+ * @author canuran
+ */
+public class RowsGrouper<ROOT, LAST> {
+
+    private final List<Level> levels;
+
+    private RowsGrouper(List<Level> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * 创建分组器，指定根对象及其Key。
+     */
+    public static <ROOT> RowsGrouper<ROOT, ROOT> of(Expression<ROOT> expression,
+                                                    Function<ROOT, ?> keyGetter) {
+        List<Level> levels = new ArrayList<>();
+        levels.add(new Level(expression, keyGetter, null, null));
+        return new RowsGrouper<>(levels);
+    }
+
+    /**
+     * 添加下一层子对象，返回新的分组器，当前分组器不变。
+     */
+    public <CHILD> RowsGrouper<ROOT, CHILD> children(Expression<CHILD> expression,
+                                                     Function<CHILD, ?> keyGetter,
+                                                     Function<LAST, List<CHILD>> childrenGetter,
+                                                     BiConsumer<LAST, List<CHILD>> childrenSetter) {
+        Objects.requireNonNull(childrenGetter, "ChildrenGetter must nonnull");
+        Objects.requireNonNull(childrenSetter, "ChildrenSetter must nonnull");
+        List<Level> next = new ArrayList<>(levels);
+        next.add(new Level(expression, keyGetter, childrenGetter, childrenSetter));
+        return new RowsGrouper<>(next);
+    }
+
+    /**
+     * 分组全部结果，根对象按Key去重。
+     */
+    @SuppressWarnings("unchecked")
+    public List<ROOT> group(List<Tuple> rows) {
+        Node top = new Node(null, null);
+        for (Tuple row : rows) {
+            if (row != null) {
+                addRow(top, row);
+            }
+        }
+        if (top.children == null) {
+            return new ArrayList<>();
+        }
+        List<ROOT> roots = new ArrayList<>(top.children.size());
+        for (Node node : top.children.values()) {
+            roots.add((ROOT) node.value);
+        }
+        return roots;
+    }
+
+    /**
+     * 流式分组按根对象Key排序的结果，根对象的Key变化时输出上一个根对象，只保留当前根对象的数据，返回根对象数量。
+     * <p>
+     * 可用于 BaseQuery.stream() 的迭代器，结果未按根对象排序时同一个Key会输出多次。
+     */
+    @SuppressWarnings("unchecked")
+    public long groupOrdered(Iterator<? extends Tuple> rows, Consumer<? super ROOT> consumer) {
+        Node top = new Node(null, null);
+        Node current = null;
+        long count = 0L;
+        while (rows.hasNext()) {
+            Tuple row = rows.next();
+            Node root = row == null ? null : addRow(top, row);
+            if (root != null && root != current) {
+                if (current != null) {
+                    top.children.remove(current.key);
+                    consumer.accept((ROOT) current.value);
+                    count++;
+                }
+                current = root;
+            }
+        }
+        if (current != null) {
+            consumer.accept((ROOT) current.value);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 逐层添加一行中的对象，返回根节点，根对象为空时返回空。
+     */
+    private Node addRow(Node top, Tuple row) {
+        Node root = null;
+        Node parent = top;
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = levels.get(i);
+            Object value = row.get(level.expression);
+            if (value == null) {
+                break;
+            }
+            Object key = level.keyGetter.apply(value);
+            if (key == null) {
+                break;
+            }
+            if (parent.children == null) {
+                parent.children = new LinkedHashMap<>();
+            }
+            Node node = parent.children.get(key);
+            if (node == null) {
+                node = new Node(key, value);
+                parent.children.put(key, node);
+                if (parent != top) {
+                    parent.addChild(level, value);
+                }
+            }
+            if (root == null) {
+                root = node;
+            }
+            parent = node;
+        }
+        return root;
+    }
+
+    private static class Level {
+
+        private final Expression<Object> expression;
+        private final Function<Object, Object> keyGetter;
+        private final Function<Object, List<Object>> childrenGetter;
+        private final BiConsumer<Object, List<Object>> childrenSetter;
+
+        @SuppressWarnings("unchecked")
+        Level(Expression<?> expression, Function<?, ?> keyGetter,
+              Function<?, ?> childrenGetter, BiConsumer<?, ?> childrenSetter) {
+            this.expression = (Expression<Object>) Objects.requireNonNull(
+                    expression, "Expression must nonnull");
+            this.keyGetter = (Function<Object, Object>) Objects.requireNonNull(
+                    keyGetter, "KeyGetter must nonnull");
+            this.childrenGetter = (Function<Object, List<Object>>) childrenGetter;
+            this.childrenSetter = (BiConsumer<Object, List<Object>>) childrenSetter;
+        }
+
+    }
+
+    private static class Node {
+
+        private final Object key;
+        private final Object value;
+        private Map<Object, Node> children;
+        private List<Object> childList;
+
+        Node(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        void addChild(Level level, Object child) {
+            if (childList == null) {
+                childList = level.childrenGetter.apply(value);
+                if (childList == null) {
+                    childList = new ArrayList<>();
+                    level.childrenSetter.accept(value, childList);
+                }
+            }
+            childList.add(child);
+        }
+
+    }
+
+}
@@ -0,0 +1,513 @@
+package canuran.query.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.*;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLSerializer;
+import com.querydsl.sql.dml.SQLInsertBatch;
+import com.querydsl.sql.types.Null;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL模板缓存，以查询的结构为键缓存序列化后的SQL，结构相同的查询只需要重新绑定参数。
+ * <p>
+ * 首次序列化时把参数按对象标识对应回表达式中的常量，无法唯一对应的结构不缓存，
+ * 超出容量时淘汰最久未使用的。多行插入和常量个数超过上限的语句（如很长的IN列表）直接序列化，
+ * 避免对应参数的开销和过大的缓存键。
+ *
+ * @author canuran
+ */
+public class SQLTemplateCache {
+
+    private static final SQLTemplate UNCACHEABLE = new SQLTemplate(null, null, null);
+
+    private final Map<List<Object>, SQLTemplate> cache;
+    private final int maxConstants;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SQLTemplateCache() {
+        this(2000, 500);
+    }
+
+    public SQLTemplateCache(int maxSize, int maxConstants) {
+        this.maxConstants = maxConstants;
+        this.cache = new LinkedHashMap<List<Object>, SQLTemplate>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, SQLTemplate> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 创建使用缓存的序列化器，dml为真时用于增删改语句。
+     */
+    public SQLSerializer createSerializer(Configuration configuration, boolean dml) {
+        return new CachedSerializer(configuration, dml);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0D : (double) hitCount / total;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SQLTemplateCache{" +
+                "size=" + size() +
+                ", hits=" + hits.sum() +
+                ", misses=" + misses.sum() +
+                '}';
+    }
+
+    /**
+     * 只缓存顶层语句，子查询等嵌套序列化仍然交给父类处理。
+     */
+    private class CachedSerializer extends SQLSerializer {
+
+        private boolean serializing;
+
+        CachedSerializer(Configuration configuration, boolean dml) {
+            super(configuration, dml);
+        }
+
+        @Override
+        public void serialize(QueryMetadata metadata, boolean forCountRow) {
+            Shape shape = newShape(forCountRow ? "count" : "select");
+            if (shape == null) {
+                super.serialize(metadata, forCountRow);
+            } else {
+                shape.metadata(metadata);
+                serialize(shape, () -> super.serialize(metadata, forCountRow));
+            }
+        }
+
+        @Override
+        public void serializeInsert(QueryMetadata metadata, RelationalPath<?> entity, List<Path<?>> columns,
+                                    List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+            Shape shape = newShape("insert");
+            if (shape == null) {
+                super.serializeInsert(metadata, entity, columns, values, subQuery);
+            } else {
+                shape.metadata(metadata);
+                shape.expression(entity);
+                shape.insertBatch(columns, values, subQuery);
+                serialize(shape, () -> super.serializeInsert(metadata, entity, columns, values, subQuery));
+            }
+        }
+
+        /**
+         * 多行插入每种行数都是不同的结构，并且参数很多，不缓存。
+         */
+        @Override
+        public void serializeInsert(QueryMetadata metadata, RelationalPath<?> entity, List<SQLInsertBatch> batches) {
+            super.serializeInsert(metadata, entity, batches);
+        }
+
+        @Override
+        public void serializeUpdate(QueryMetadata metadata, RelationalPath<?> entity,
+                                    Map<Path<?>, Expression<?>> updates) {
+            Shape shape = newShape("update");
+            if (shape == null) {
+                super.serializeUpdate(metadata, entity, updates);
+            } else {
+                shape.metadata(metadata);
+                shape.expression(entity);
+                shape.token(updates.size());
+                updates.forEach((path, value) -> {
+                    shape.expression(path);
+                    shape.expression(value);
+                });
+                serialize(shape, () -> super.serializeUpdate(metadata, entity, updates));
+            }
+        }
+
+        @Override
+        public void serializeDelete(QueryMetadata metadata, RelationalPath<?> entity) {
+            Shape shape = newShape("delete");
+            if (shape == null) {
+                super.serializeDelete(metadata, entity);
+            } else {
+                shape.metadata(metadata);
+                shape.expression(entity);
+                serialize(shape, () -> super.serializeDelete(metadata, entity));
+            }
+        }
+
+        /**
+         * 使用字面量或者已有内容时不缓存。
+         */
+        private Shape newShape(String statement) {
+            if (serializing || useLiterals || inUnion || inSubquery || inJoin
+                    || getLength() > 0 || !constants.isEmpty()) {
+                return null;
+            }
+            Shape shape = new Shape(configuration);
+            shape.token(configuration);
+            shape.token(dml);
+            shape.token(statement);
+            return shape;
+        }
+
+        private void serialize(Shape shape, Runnable serializer) {
+            if (shape.values.size() > maxConstants) {
+                serializer.run();
+                return;
+            }
+            serializing = true;
+            try {
+                SQLTemplate template;
+                synchronized (cache) {
+                    template = cache.get(shape.tokens);
+                }
+                if (template != null && template.sql != null) {
+                    hits.increment();
+                    append(template.sql);
+                    for (int index : template.indexes) {
+                        constants.add(shape.values.get(index));
+                    }
+                    constantPaths.addAll(template.paths);
+                    return;
+                }
+                misses.increment();
+                serializer.run();
+                if (template == null) {
+                    SQLTemplate compiled = shape.compile(toString(), constants, constantPaths);
+                    if (compiled != null) {
+                        synchronized (cache) {
+                            cache.putIfAbsent(shape.tokens, compiled);
+                        }
+                    }
+                }
+            } finally {
+                serializing = false;
+            }
+        }
+
+    }
+
+    /**
+     * 查询结构，路径、操作符、模板、常量类型等作为键，常量值按遍历顺序记录用于重新绑定。
+     */
+    private static class Shape implements Visitor<Void, Void> {
+
+        private final Templates templates;
+        private final List<Object> tokens = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        // 值已包含在键中的位置，如参数占位符
+        private final BitSet fixed = new BitSet();
+        // 必须作为参数绑定的位置，如分页参数，方言把它写成字面量时不缓存
+        private final BitSet required = new BitSet();
+        // 由模板转换生成的常量，如 like 的 %value%，只能按值对应
+        private final BitSet derived = new BitSet();
+        private boolean deriving;
+
+        Shape(Configuration configuration) {
+            this.templates = configuration.getTemplates();
+        }
+
+        void token(Object token) {
+            tokens.add(token);
+        }
+
+        void expression(Expression<?> expression) {
+            if (expression == null) {
+                tokens.add(null);
+            } else {
+                expression.accept(this, null);
+            }
+        }
+
+        void metadata(QueryMetadata metadata) {
+            tokens.add(metadata.isDistinct());
+            expression(metadata.getProjection());
+            tokens.add(metadata.getJoins().size());
+            for (JoinExpression join : metadata.getJoins()) {
+                tokens.add(join.getType());
+                expression(join.getTarget());
+                expression(join.getCondition());
+                tokens.add(join.getFlags().size());
+                for (JoinFlag flag : join.getFlags()) {
+                    tokens.add(flag.getPosition());
+                    expression(flag.getFlag());
+                }
+            }
+            expression(metadata.getWhere());
+            tokens.add(metadata.getGroupBy().size());
+            for (Expression<?> group : metadata.getGroupBy()) {
+                expression(group);
+            }
+            expression(metadata.getHaving());
+            tokens.add(metadata.getOrderBy().size());
+            for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+                tokens.add(order.getOrder());
+                tokens.add(order.getNullHandling());
+                expression(order.getTarget());
+            }
+            QueryModifiers modifiers = metadata.getModifiers();
+            modifier(modifiers.getLimit());
+            modifier(modifiers.getOffset());
+            tokens.add(metadata.getFlags().size());
+            for (QueryFlag flag : metadata.getFlags()) {
+                tokens.add(flag.getPosition());
+                expression(flag.getFlag());
+            }
+        }
+
+        void insertBatch(List<Path<?>> columns, List<Expression<?>> values, SubQueryExpression<?> subQuery) {
+            tokens.add(columns.size());
+            for (Path<?> column : columns) {
+                expression(column);
+            }
+            tokens.add(values.size());
+            for (Expression<?> value : values) {
+                expression(value);
+            }
+            expression(subQuery);
+        }
+
+        private void modifier(Long value) {
+            tokens.add(value != null);
+            if (value != null) {
+                required.set(values.size());
+                values.add(value);
+            }
+        }
+
+        private void value(Object value) {
+            if (deriving) {
+                derived.set(values.size());
+            } else if (value instanceof Null) {
+                fixed.set(values.size());
+            }
+            values.add(value);
+        }
+
+        private void constant(Object constant) {
+            if (constant instanceof Collection) {
+                Collection<?> collection = (Collection<?>) constant;
+                tokens.add(Collection.class);
+                tokens.add(collection.size());
+                for (Object element : collection) {
+                    tokens.add(element == null ? null : element.getClass());
+                    value(element);
+                }
+            } else if (constant instanceof Class) {
+                // 类型转换时会把类型名写入SQL
+                tokens.add(constant);
+                fixed.set(values.size());
+                values.add(constant);
+            } else {
+                tokens.add(constant == null ? null : constant.getClass());
+                value(constant);
+            }
+        }
+
+        /**
+         * 模板中转换为文本的部分作为键，转换生成的常量作为派生值。
+         */
+        private void template(Template template, List<?> args) {
+            if (template == null) {
+                tokens.add(null);
+                return;
+            }
+            for (Template.Element element : template.getElements()) {
+                if (element instanceof Template.ByIndex || element instanceof Template.StaticText) {
+                    continue;
+                }
+                Object converted = element.convert(args);
+                if (element.isString()) {
+                    tokens.add(converted);
+                } else {
+                    boolean parentDeriving = deriving;
+                    deriving = true;
+                    if (converted instanceof Expression) {
+                        ((Expression<?>) converted).accept(this, null);
+                    } else {
+                        constant(converted);
+                    }
+                    deriving = parentDeriving;
+                }
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Void context) {
+            constant(expr.getConstant());
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Void context) {
+            tokens.add(expr.getClass());
+            tokens.add(expr.getType());
+            tokens.add(expr.getArgs().size());
+            for (Expression<?> arg : expr.getArgs()) {
+                expression(arg);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Void context) {
+            tokens.add(expr.getOperator());
+            tokens.add(expr.getType());
+            tokens.add(expr.getArgs().size());
+            for (Expression<?> arg : expr.getArgs()) {
+                expression(arg);
+            }
+            template(templates.getTemplate(expr.getOperator()), expr.getArgs());
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Void context) {
+            tokens.add(expr);
+            fixed.set(values.size());
+            values.add(expr);
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Void context) {
+            tokens.add(expr.getClass());
+            tokens.add(expr);
+            tokens.add(expr.getType());
+            Path<?> root = expr.getRoot();
+            tokens.add(root.getClass());
+            if (root instanceof RelationalPath) {
+                tokens.add(((RelationalPath<?>) root).getSchemaAndTable());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Void context) {
+            tokens.add(SubQueryExpression.class);
+            metadata(expr.getMetadata());
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Void context) {
+            tokens.add(expr.getTemplate());
+            tokens.add(expr.getType());
+            tokens.add(expr.getArgs().size());
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    expression((Expression<?>) arg);
+                } else {
+                    constant(arg);
+                }
+            }
+            template(expr.getTemplate(), expr.getArgs());
+            return null;
+        }
+
+        /**
+         * 把序列化得到的参数对应回遍历位置，有参数无法对应时该结构不缓存，
+         * 有多个可变位置同时对应时本次不缓存，等待参数值不同的查询再编译。
+         */
+        SQLTemplate compile(String sql, List<Object> constants, List<Path<?>> constantPaths) {
+            int[] indexes = new int[constants.size()];
+            BitSet used = new BitSet();
+            for (int i = 0; i < indexes.length; i++) {
+                int index = match(constants, constants.get(i));
+                if (index == -1) {
+                    return UNCACHEABLE;
+                } else if (index == -2) {
+                    return null;
+                }
+                indexes[i] = index;
+                used.set(index);
+            }
+            BitSet unused = (BitSet) required.clone();
+            unused.andNot(used);
+            if (!unused.isEmpty()) {
+                return UNCACHEABLE;
+            }
+            return new SQLTemplate(sql, indexes, new ArrayList<>(constantPaths));
+        }
+
+        /**
+         * 返回参数对应的位置，-1 表示无法对应，-2 表示有歧义。
+         */
+        private int match(List<Object> constants, Object constant) {
+            int index = -1;
+            int derivedIndex = -1;
+            boolean ambiguous = false;
+            for (int j = 0; j < values.size(); j++) {
+                Object value = values.get(j);
+                if (derived.get(j) ? Objects.equals(value, constant) : value == constant) {
+                    if (derived.get(j) && value == constant) {
+                        derivedIndex = derivedIndex == -1 ? j : -2;
+                    }
+                    if (index == -1) {
+                        index = j;
+                    } else if (!fixed.get(index) || !fixed.get(j)) {
+                        ambiguous = true;
+                    }
+                }
+            }
+            if (!ambiguous) {
+                return index;
+            }
+            // 转换结果与原值相同时，只出现一次的参数来自转换后的模板
+            if (derivedIndex >= 0) {
+                int occurrences = 0;
+                for (Object other : constants) {
+                    if (other == constant) {
+                        occurrences++;
+                    }
+                }
+                if (occurrences == 1) {
+                    return derivedIndex;
+                }
+            }
+            return -2;
+        }
+
+    }
+
+    private static class SQLTemplate {
+        private final String sql;
+        private final int[] indexes;
+        private final List<Path<?>> paths;
+
+        SQLTemplate(String sql, int[] indexes, List<Path<?>> paths) {
+            this.sql = sql;
+            this.indexes = indexes;
+            this.paths = paths;
+        }
+    }
+
+}
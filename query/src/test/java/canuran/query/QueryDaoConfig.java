@@ -4,6 +4,7 @@ import com.querydsl.sql.H2Templates;
 import com.querydsl.sql.SQLTemplates;
 import com.querydsl.sql.spring.SpringExceptionTranslator;
 import canuran.query.support.FriendlySQLLogger;
+import canuran.query.support.QueryCache;
 import canuran.query.support.SafeSQLListener;
 import canuran.query.support.SpringConnectionProvider;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,7 +38,8 @@ public class QueryDaoConfig {
         configuration.setExceptionTranslator(new SpringExceptionTranslator());
         configuration.addListener(new FriendlySQLLogger());
         configuration.addListener(new SafeSQLListener());
-        return new BaseQueryFactory(configuration, new SpringConnectionProvider(dataSource, configuration));
+        return new BaseQueryFactory(configuration, new SpringConnectionProvider(dataSource, configuration))
+                .queryCache(new QueryCache());
     }
 
 }
\ No newline at end of file
@@ -10,8 +10,10 @@ import com.querydsl.sql.SQLExpressions;
 import com.querydsl.sql.dml.AbstractSQLUpdateClause;
 import canuran.query.clause.BaseQuery;
 import canuran.query.clause.BaseUpdate;
+import canuran.query.paging.KeysetPaging;
 import canuran.query.paging.NumPaging;
 import canuran.query.paging.Page;
+import canuran.query.paging.Slice;
 import canuran.query.querydsldemo.entity.DemoAddress;
 import canuran.query.querydsldemo.entity.DemoUser;
 import canuran.query.querydsldemo.query.QDemoAddress;
@@ -19,6 +21,8 @@ import canuran.query.querydsldemo.query.QDemoUser;
 import canuran.query.querydsldemo.vo.DemoAddressDetail;
 import canuran.query.querydsldemo.vo.DemoUserDetail;
 import canuran.query.querydsldemo.vo.DemoUserSimple;
+import canuran.query.support.BulkResult;
+import canuran.query.support.RowsGrouper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,9 +35,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static canuran.query.querydsldemo.query.QDemoAddress.demoAddress;
 import static canuran.query.querydsldemo.query.QDemoUser.demoUser;
@@ -96,6 +102,20 @@ public class QuerydslDemos {
         List<Integer> userIds = queryFactory.insert(demoUser).insertGetKeys(newUsers);
         System.out.println(userIds);
 
+        // 大批量导入，按数据包大小和参数个数自动分块为多行INSERT
+        BulkResult bulkResult = queryFactory.insert(demoUser)
+                .bulkPipeline(true)
+                .insertBulk(Arrays.asList(newDemoUser(), newDemoUser(), newDemoUser()));
+        System.out.println(bulkResult.getChunks());
+
+        // 插入或更新，主键已存在时只更新用户名，按数据库方言生成多行语句
+        DemoUser existsUser = queryFactory.selectFrom(demoUser).fetchFirst();
+        existsUser.setUsername("upsert");
+        bulkResult = queryFactory.upsert(demoUser)
+                .updates(demoUser.username)
+                .upsertBeans(Arrays.asList(existsUser, newDemoUser()));
+        System.out.println(bulkResult.getInserted() + " " + bulkResult.getUpdated());
+
         // 自定义字段、动态字段
         long rows = queryFactory.insert(demoUser)
                 .set(demoUser.username, demoUserDo.getUsername())
@@ -120,6 +140,11 @@ public class QuerydslDemos {
         rows = queryFactory.update(demoUser).updateWithNull(demoUserDo);
         System.out.println(rows);
 
+        // 批量更新实体，字段相同的实体分为一组，小组合并为一条 CASE WHEN 语句
+        List<DemoUser> demoUsers = queryFactory.selectFrom(demoUser).limit(10).fetch();
+        rows = queryFactory.update(demoUser).caseWhenMaxRows(20).updateBeans(demoUsers);
+        System.out.println(rows);
+
         // 条件更新、动态字段
         rows = queryFactory.update(demoUser).whereEqKey(demoUserDo.getUserId())
                 .setIfHasText(demoUser.username, "元宝")
@@ -143,6 +168,11 @@ public class QuerydslDemos {
         rows = queryFactory.delete(demoUser).deleteBean(demoUserDo);
         System.out.println(rows);
 
+        // 批量通过ID删除，每500个ID合并为一条 IN 语句
+        rows = queryFactory.delete(demoUser).keysChunkSize(500)
+                .deleteByKeys(Arrays.asList(demoUserDo.getUserId() + 1, demoUserDo.getUserId() + 2));
+        System.out.println(rows);
+
         // 条件删除、动态条件
         rows = queryFactory.delete(demoUser)
                 .where(demoUser.userId.goe(demoUserDo.getUserId()))
@@ -180,6 +210,18 @@ public class QuerydslDemos {
                 .on(demoAddress.addressId.eq(demoUser.addressId))
                 .fetch();
         System.out.println(addressAndUser);
+
+        // 缓存读多写少的查询，通过查询工厂修改该表时自动失效
+        List<DemoAddress> addresses = queryFactory.selectFrom(demoAddress)
+                .cached(Duration.ofMinutes(1))
+                .fetch();
+        System.out.println(addresses);
+
+        // 流式查询，逐行读取并映射，适合导出大量数据
+        long rows = queryFactory.selectFrom(demoUser)
+                .fitBean(DemoUserSimple.class)
+                .forEachRow(System.out::println);
+        System.out.println(rows);
     }
 
     /**
@@ -217,6 +259,21 @@ public class QuerydslDemos {
                 .offset(100)
                 .fetchPage();
         System.out.println(smartPage);
+
+        // 使用窗口函数在一次查询中同时统计总数，数据库不支持时自动分两次查询
+        Page<DemoUser> windowPage = queryFactory.selectFrom(demoUser)
+                .pagingIfNotnull(new NumPaging(1, 10))
+                .pageWindowCount(true)
+                .fetchPage();
+        System.out.println(windowPage);
+
+        // 游标分页，把上一页的nextKeys传回即可查询下一页，排序字段需唯一确定一行
+        KeysetPaging keysetPaging = new KeysetPaging(10);
+        Slice<DemoUser> slice = queryFactory.selectFrom(demoUser)
+                .orderBy(demoUser.gender.asc(), demoUser.userId.asc())
+                .pagingIfNotnull(keysetPaging)
+                .fetchSlice();
+        System.out.println(slice);
     }
 
     /**
@@ -387,6 +444,22 @@ public class QuerydslDemos {
                 DemoAddressDetail::setSubAddresses);
 
         System.out.println(addressDetails);
+
+        // 按父对象排序后流式分组，逐个输出父对象而不缓存全部结果
+        RowsGrouper<DemoAddressDetail, DemoAddress> grouper = RowsGrouper
+                .of(qAddressDetail, DemoAddressDetail::getAddressId)
+                .children(subAddress, DemoAddress::getAddressId,
+                        DemoAddressDetail::getSubAddresses,
+                        DemoAddressDetail::setSubAddresses);
+        try (Stream<Tuple> stream = queryFactory.select(qAddressDetail, subAddress)
+                .from(demoAddress)
+                .leftJoin(subAddress)
+                .on(demoAddress.addressId.eq(subAddress.parentId))
+                .where(demoAddress.parentId.isNull())
+                .orderBy(demoAddress.addressId.asc())
+                .stream()) {
+            grouper.groupOrdered(stream.iterator(), System.out::println);
+        }
     }
 
     /**
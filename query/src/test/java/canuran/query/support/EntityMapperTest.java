@@ -0,0 +1,110 @@
+package canuran.query.support;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.querydsldemo.entity.DemoUser;
+import canuran.query.querydsldemo.query.QDemoUser;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static canuran.query.querydsldemo.query.QDemoAddress.demoAddress;
+import static canuran.query.querydsldemo.query.QDemoUser.demoUser;
+
+/**
+ * 实体映射器测试，开启映射器时查询实体的结果与 Querydsl 填充的结果必须一致。
+ *
+ * @author canuran
+ */
+public class EntityMapperTest {
+
+    private static Connection connection;
+    private static BaseQueryFactory mapped;
+    private static BaseQueryFactory unmapped;
+
+    @BeforeClass
+    public static void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:entityMapper;MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:querydsldemo.sql'");
+        }
+        Configuration configuration = new Configuration(new H2Templates());
+        mapped = new BaseQueryFactory(configuration, () -> connection).entityMappers(true);
+        unmapped = new BaseQueryFactory(configuration, () -> connection);
+    }
+
+    @AfterClass
+    public static void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Before
+    public void clearMappers() {
+        mapped.getEntityMapperCache().clear();
+    }
+
+    @Test
+    public void selectFrom() {
+        List<DemoUser> users = mapped.selectFrom(demoUser).orderBy(demoUser.userId.asc()).fetch();
+        Assert.assertEquals(1, mapped.getEntityMapperCache().size());
+        // 映射器由各自的工厂持有
+        Assert.assertEquals(0, unmapped.getEntityMapperCache().size());
+        assertSameUsers(unmapped.selectFrom(demoUser).orderBy(demoUser.userId.asc()).fetch(), users);
+        Assert.assertEquals(Integer.valueOf(1), users.get(0).getUserId());
+        Assert.assertEquals("元宝", users.get(0).getUsername());
+        Assert.assertNotNull(users.get(0).getCreateTime());
+    }
+
+    @Test
+    public void aliasAndJoin() {
+        QDemoUser user = new QDemoUser("joinUser");
+        List<DemoUser> users = mapped.select(user)
+                .from(demoAddress)
+                .innerJoin(user).on(user.addressId.eq(demoAddress.addressId))
+                .orderBy(user.userId.asc())
+                .fetch();
+        Assert.assertEquals(1, mapped.getEntityMapperCache().size());
+        assertSameUsers(unmapped.select(user)
+                .from(demoAddress)
+                .innerJoin(user).on(user.addressId.eq(demoAddress.addressId))
+                .orderBy(user.userId.asc())
+                .fetch(), users);
+    }
+
+    @Test
+    public void otherProjections() {
+        // 不是实体的投影不使用映射器
+        List<DemoUser> users = mapped.select(demoUser.userId, demoUser.username)
+                .from(demoUser)
+                .fitBean(DemoUser.class)
+                .fetch();
+        Assert.assertEquals(0, mapped.getEntityMapperCache().size());
+        Assert.assertFalse(users.isEmpty());
+        Assert.assertNull(users.get(0).getPassword());
+    }
+
+    private static void assertSameUsers(List<DemoUser> expected, List<DemoUser> actual) {
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DemoUser e = expected.get(i);
+            DemoUser a = actual.get(i);
+            Assert.assertEquals(e.getUserId(), a.getUserId());
+            Assert.assertEquals(e.getUsername(), a.getUsername());
+            Assert.assertEquals(e.getPassword(), a.getPassword());
+            Assert.assertEquals(e.getGender(), a.getGender());
+            Assert.assertEquals(e.getAddressId(), a.getAddressId());
+            Assert.assertEquals(e.getCreateTime(), a.getCreateTime());
+        }
+    }
+
+}
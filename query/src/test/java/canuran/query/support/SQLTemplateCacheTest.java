@@ -0,0 +1,277 @@
+package canuran.query.support;
+
+import canuran.query.BaseQueryFactory;
+import canuran.query.clause.BaseInsert;
+import canuran.query.querydsldemo.query.QDemoUser;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLTemplates;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static canuran.query.querydsldemo.query.QDemoUser.demoUser;
+
+/**
+ * SQL模板缓存测试，同一个查询分别使用缓存和不使用缓存生成SQL，比较SQL和参数是否完全一致。
+ *
+ * @author canuran
+ */
+public class SQLTemplateCacheTest {
+
+    private static final QDemoUser subUser = new QDemoUser("subUser");
+
+    /**
+     * 每个结构使用三组不同的值，第一次编译模板，后两次命中缓存后重新绑定参数。
+     */
+    private static final Object[][] VALUES = {
+            {1, "a", 10},
+            {1000, "bb", 20},
+            {1000, "bb", 30}
+    };
+
+    @Test
+    public void repeatedEqualConstants() {
+        // 同一个对象出现在多个位置，无法确定对应关系，不缓存但结果必须一致
+        assertSameSQL(false, (factory, v) -> {
+            Integer number = v.number();
+            return factory.selectFrom(demoUser)
+                    .where(demoUser.userId.eq(number).or(demoUser.gender.eq(number)))
+                    .where(demoUser.addressId.eq(number))
+                    .getSQL();
+        });
+        // 相等但不是同一个对象
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.username.eq(v.text()))
+                .where(demoUser.password.eq(new String(v.text())))
+                .getSQL());
+        // 同一个位置每次使用不同的值，其他位置的值与它相同
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.userId.eq(v.other()))
+                .where(demoUser.gender.eq(v.number()))
+                .where(demoUser.addressId.eq(v.number()))
+                .getSQL());
+    }
+
+    @Test
+    public void likeConstants() {
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.username.contains(v.text()))
+                .where(demoUser.password.startsWith(v.text()))
+                .where(demoUser.username.endsWith(v.text()))
+                .getSQL());
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.username.containsIgnoreCase(v.text()))
+                .where(demoUser.password.like("%" + v.text()))
+                .where(demoUser.password.eq(v.text()))
+                .getSQL());
+    }
+
+    @Test
+    public void inLists() {
+        // 长度不同的列表是不同的结构，长度相同时命中缓存
+        List<List<Integer>> lists = Arrays.asList(Collections.singletonList(1),
+                Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5, 6, 7), Arrays.asList(8, 9, 10));
+        for (SQLTemplates templates : Arrays.asList(new H2Templates(), new MySQLTemplates())) {
+            BaseQueryFactory cached = factory(templates, new SQLTemplateCache());
+            BaseQueryFactory uncached = factory(templates, null);
+            for (List<Integer> list : lists) {
+                List<Integer> other = Arrays.asList(list.get(0) + 100, list.get(0) + 200);
+                assertEquals(uncached.selectFrom(demoUser)
+                                .where(demoUser.userId.in(list))
+                                .where(demoUser.gender.notIn(other))
+                                .getSQL(),
+                        cached.selectFrom(demoUser)
+                                .where(demoUser.userId.in(list))
+                                .where(demoUser.gender.notIn(other))
+                                .getSQL());
+                // 同一个列表出现两次时不缓存
+                assertEquals(uncached.selectFrom(demoUser)
+                                .where(demoUser.userId.in(list).or(demoUser.addressId.in(list)))
+                                .getSQL(),
+                        cached.selectFrom(demoUser)
+                                .where(demoUser.userId.in(list).or(demoUser.addressId.in(list)))
+                                .getSQL());
+            }
+            Assert.assertEquals(2, cached.getTemplateCache().getHitCount());
+        }
+    }
+
+    @Test
+    public void limitAndOffset() {
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.gender.eq(v.number()))
+                .orderBy(demoUser.userId.asc())
+                .limit(v.other())
+                .offset(v.number())
+                .getSQL());
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .limit(v.other())
+                .getSQL());
+    }
+
+    @Test
+    public void subqueries() {
+        assertSameSQL(true, (factory, v) -> factory.selectFrom(demoUser)
+                .where(demoUser.userId.in(SQLExpressions.select(subUser.userId)
+                        .from(subUser)
+                        .where(subUser.gender.eq(v.number()))))
+                .where(demoUser.username.eq(v.text()))
+                .getSQL());
+        assertSameSQL(true, (factory, v) -> factory.select(demoUser.userId,
+                SQLExpressions.select(subUser.userId.count())
+                        .from(subUser)
+                        .where(subUser.addressId.eq(v.other())))
+                .from(demoUser)
+                .where(SQLExpressions.selectOne()
+                        .from(subUser)
+                        .where(subUser.userId.eq(v.number()))
+                        .exists())
+                .getSQL());
+    }
+
+    @Test
+    public void caseWhen() {
+        assertSameSQL(true, (factory, v) -> factory.select(demoUser.gender
+                .when(v.number()).then(v.text())
+                .otherwise("other"))
+                .from(demoUser)
+                .getSQL());
+        assertSameSQL(true, (factory, v) -> factory.select(new CaseBuilder()
+                .when(demoUser.gender.gt(v.number())).then(v.other())
+                .when(demoUser.gender.lt(v.other())).then(v.number())
+                .otherwise(v.other()))
+                .from(demoUser)
+                .where(demoUser.username.eq(v.text()))
+                .getSQL());
+    }
+
+    @Test
+    public void dml() {
+        Date date = new Date(0L);
+        assertSameSQL(true, (factory, v) -> single(factory.insert(demoUser)
+                .set(demoUser.userId, v.number())
+                .set(demoUser.username, v.text())
+                .set(demoUser.password, v.text())
+                .set(demoUser.gender, v.other())
+                .set(demoUser.createTime, date)
+                .getSQL()));
+        assertSameSQL(true, (factory, v) -> single(factory.update(demoUser)
+                .set(demoUser.username, v.text())
+                .set(demoUser.gender, v.number())
+                .where(demoUser.userId.eq(v.other()))
+                .where(demoUser.password.contains(v.text()))
+                .getSQL()));
+        assertSameSQL(true, (factory, v) -> single(factory.delete(demoUser)
+                .where(demoUser.userId.in(v.number(), v.other()))
+                .where(demoUser.username.eq(v.text()))
+                .getSQL()));
+    }
+
+    @Test
+    public void largeStatements() {
+        // 批量、多行插入和常量过多的语句直接序列化，不进入缓存
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        for (SQLTemplates templates : Arrays.asList(new H2Templates(), new MySQLTemplates())) {
+            BaseQueryFactory cached = factory(templates, new SQLTemplateCache());
+            BaseQueryFactory uncached = factory(templates, null);
+            assertEquals(uncached.selectFrom(demoUser).where(demoUser.userId.in(list)).getSQL(),
+                    cached.selectFrom(demoUser).where(demoUser.userId.in(list)).getSQL());
+            for (boolean bulk : new boolean[]{false, true}) {
+                List<SQLBindings> expected = batchInsert(uncached, bulk);
+                List<SQLBindings> actual = batchInsert(cached, bulk);
+                Assert.assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), actual.get(i));
+                }
+            }
+            Assert.assertEquals(0, cached.getTemplateCache().size());
+        }
+    }
+
+    private static List<SQLBindings> batchInsert(BaseQueryFactory factory, boolean bulk) {
+        BaseInsert insert = factory.insert(demoUser);
+        insert.setBatchToBulk(bulk);
+        for (Object[] value : VALUES) {
+            Values v = new Values(value);
+            insert.set(demoUser.userId, v.number())
+                    .set(demoUser.username, v.text())
+                    .set(demoUser.gender, v.other())
+                    .addBatch();
+        }
+        return insert.getSQL();
+    }
+
+    private static SQLBindings single(List<SQLBindings> bindings) {
+        Assert.assertEquals(1, bindings.size());
+        return bindings.get(0);
+    }
+
+    /**
+     * 在H2和MySQL方言下分别比较，expectHits为真时要求缓存确实命中。
+     */
+    private static void assertSameSQL(boolean expectHits, BiFunction<BaseQueryFactory, Values, SQLBindings> query) {
+        for (SQLTemplates templates : Arrays.asList(new H2Templates(), new MySQLTemplates())) {
+            BaseQueryFactory cached = factory(templates, new SQLTemplateCache());
+            BaseQueryFactory uncached = factory(templates, null);
+            for (Object[] value : VALUES) {
+                assertEquals(query.apply(uncached, new Values(value)), query.apply(cached, new Values(value)));
+            }
+            if (expectHits) {
+                Assert.assertTrue("Template cache not hit", cached.getTemplateCache().getHitCount() > 0);
+            }
+        }
+    }
+
+    private static void assertEquals(SQLBindings expected, SQLBindings actual) {
+        Assert.assertEquals(expected.getSQL(), actual.getSQL());
+        Assert.assertEquals(expected.getNullFriendlyBindings(), actual.getNullFriendlyBindings());
+    }
+
+    private static BaseQueryFactory factory(SQLTemplates templates, SQLTemplateCache templateCache) {
+        return new BaseQueryFactory(new Configuration(templates), () -> {
+            throw new UnsupportedOperationException("Only SQL generation is tested");
+        }).templateCache(templateCache);
+    }
+
+    /**
+     * 每次创建新的对象，使相等的值不是同一个对象。
+     */
+    private static class Values {
+
+        private final Object[] values;
+
+        Values(Object[] values) {
+            this.values = values;
+        }
+
+        @SuppressWarnings("UnnecessaryBoxing")
+        Integer number() {
+            return new Integer((Integer) values[0]);
+        }
+
+        String text() {
+            return new String((String) values[1]);
+        }
+
+        @SuppressWarnings("UnnecessaryBoxing")
+        Integer other() {
+            return new Integer((Integer) values[2]);
+        }
+
+    }
+
+}